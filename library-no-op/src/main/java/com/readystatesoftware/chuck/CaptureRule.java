@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+/**
+ * No-op implementation.
+ */
+public final class CaptureRule {
+
+    private CaptureRule() {
+    }
+
+    public static final class Builder {
+
+        public Builder host(String host) {
+            return this;
+        }
+
+        public Builder pathPrefix(String pathPrefix) {
+            return this;
+        }
+
+        public Builder path(String pathGlob) {
+            return this;
+        }
+
+        public Builder method(String... methods) {
+            return this;
+        }
+
+        public Builder contentType(String contentType) {
+            return this;
+        }
+
+        public Builder level(CaptureLevel level) {
+            return this;
+        }
+
+        public Builder maxContentLength(long max) {
+            return this;
+        }
+
+        public CaptureRule build() {
+            return new CaptureRule();
+        }
+    }
+}
@@ -23,7 +23,25 @@ import android.content.Intent;
  */
 public class Chuck {
 
+    public static final String CAPTURE_HEADER = "Chuck-Capture";
+
     public static Intent getLaunchIntent(Context context) {
         return new Intent();
     }
+
+    public static void setCaptureMemoryBudget(long bytes) {
+    }
+
+    public static void setRadioTailTime(long ms) {
+    }
+
+    public static void registerContentDecoder(String coding, ContentDecoder decoder) {
+    }
+
+    public static void setCaptureLevel(CaptureLevel level) {
+    }
+
+    public static CaptureLevel getCaptureLevel() {
+        return CaptureLevel.NONE;
+    }
 }
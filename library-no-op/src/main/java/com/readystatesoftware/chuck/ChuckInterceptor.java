@@ -19,6 +19,7 @@ import android.content.Context;
 
 import java.io.IOException;
 
+import okhttp3.Dispatcher;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -46,6 +47,27 @@ public final class ChuckInterceptor implements Interceptor {
         return this;
     }
 
+    public ChuckInterceptor captureRules(CaptureRule... rules) {
+        return this;
+    }
+
+    public ChuckInterceptor sampling(Sampling sampling) {
+        return this;
+    }
+
+    public ChuckInterceptor monitorDispatcher(Dispatcher dispatcher) {
+        return this;
+    }
+
+    public Interceptor networkInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                return chain.proceed(chain.request());
+            }
+        };
+    }
+
     public ChuckInterceptor retainDataFor(Period period) {
         return this;
     }
@@ -53,6 +75,9 @@ public final class ChuckInterceptor implements Interceptor {
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
+        if (request.header(Chuck.CAPTURE_HEADER) != null) {
+            request = request.newBuilder().removeHeader(Chuck.CAPTURE_HEADER).build();
+        }
         return chain.proceed(request);
     }
 }
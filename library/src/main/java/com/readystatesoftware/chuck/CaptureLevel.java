@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+/**
+ * How much of an HTTP transaction is recorded.
+ */
+public enum CaptureLevel {
+    /**
+     * Record nothing.
+     */
+    NONE,
+    /**
+     * Record the method, URL, status, timings and sizes only.
+     */
+    METADATA,
+    /**
+     * Record metadata plus request and response headers.
+     */
+    HEADERS,
+    /**
+     * Record headers plus request and response bodies.
+     */
+    BODY;
+
+    boolean includes(CaptureLevel level) {
+        return compareTo(level) >= 0;
+    }
+
+    static CaptureLevel lowest(CaptureLevel a, CaptureLevel b) {
+        return (a.compareTo(b) <= 0) ? a : b;
+    }
+
+    /**
+     * Parses the value of a {@link Chuck#CAPTURE_HEADER} header. Anything other than a level
+     * name is treated as an opt-out.
+     */
+    static CaptureLevel fromHeader(String value) {
+        for (CaptureLevel level : values()) {
+            if (level.name().equalsIgnoreCase(value.trim())) {
+                return level;
+            }
+        }
+        return NONE;
+    }
+}
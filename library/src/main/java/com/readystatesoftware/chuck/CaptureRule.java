@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+import java.util.Locale;
+
+/**
+ * A capture policy applied to the requests it matches. Rules are evaluated in the order they are
+ * given to {@link Chuck2Interceptor#captureRules(CaptureRule...)} and the first match wins.
+ * Conditions that are not set match every request.
+ */
+public final class CaptureRule {
+
+    final String host;
+    final String path;
+    final boolean pathIsPrefix;
+    final String[] methods;
+    final String contentType;
+    final CaptureLevel level;
+    final long maxContentLength;
+
+    private CaptureRule(Builder builder) {
+        host = builder.host;
+        path = builder.path;
+        pathIsPrefix = builder.pathIsPrefix;
+        methods = builder.methods;
+        contentType = builder.contentType;
+        level = builder.level;
+        maxContentLength = builder.maxContentLength;
+    }
+
+    boolean matchesMethod(String method) {
+        if (methods == null) {
+            return true;
+        }
+        for (String m : methods) {
+            if (m.equalsIgnoreCase(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param mediaTypes a media type, or a comma separated list of them as found in an Accept header.
+     */
+    boolean matchesContentType(String mediaTypes) {
+        if (contentType == null) {
+            return true;
+        }
+        if (mediaTypes == null) {
+            return false;
+        }
+        for (String mediaType : mediaTypes.split(",")) {
+            int params = mediaType.indexOf(';');
+            String type = ((params >= 0) ? mediaType.substring(0, params) : mediaType).trim().toLowerCase(Locale.US);
+            if (contentType.equals("*/*") || contentType.equals(type) || type.equals("*/*")) {
+                return true;
+            }
+            if (contentType.endsWith("/*") && type.startsWith(contentType.substring(0, contentType.length() - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class Builder {
+
+        private String host;
+        private String path;
+        private boolean pathIsPrefix;
+        private String[] methods;
+        private String contentType;
+        private CaptureLevel level = CaptureLevel.BODY;
+        private long maxContentLength = -1;
+
+        /**
+         * Match an exact host name, or every subdomain of a domain with a leading wildcard
+         * such as {@code *.example.com}.
+         */
+        public Builder host(String host) {
+            this.host = host.toLowerCase(Locale.US);
+            return this;
+        }
+
+        /**
+         * Match a path and everything below it, by whole segments. {@code /v1/users} matches
+         * {@code /v1/users} and {@code /v1/users/42} but not {@code /v1/users-legacy}.
+         */
+        public Builder pathPrefix(String pathPrefix) {
+            this.path = pathPrefix;
+            this.pathIsPrefix = true;
+            return this;
+        }
+
+        /**
+         * Match a path glob, where {@code *} matches a single segment and a trailing {@code **}
+         * matches any number of segments, as in {@code /v1/users/*}{@code /avatar}.
+         */
+        public Builder path(String pathGlob) {
+            this.path = pathGlob;
+            this.pathIsPrefix = false;
+            return this;
+        }
+
+        /**
+         * Match any of the given request methods.
+         */
+        public Builder method(String... methods) {
+            this.methods = methods;
+            return this;
+        }
+
+        /**
+         * Match a media type such as {@code application/json} or {@code image/*}. This is checked
+         * against the request body type, or the Accept header for requests without a body.
+         */
+        public Builder contentType(String contentType) {
+            this.contentType = contentType.toLowerCase(Locale.US);
+            return this;
+        }
+
+        /**
+         * Set the capture level for matching requests. The default is {@link CaptureLevel#BODY}.
+         */
+        public Builder level(CaptureLevel level) {
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Set the maximum length (in bytes) for request/response content of matching requests.
+         * The interceptor default applies if this is not set.
+         */
+        public Builder maxContentLength(long max) {
+            this.maxContentLength = max;
+            return this;
+        }
+
+        public CaptureRule build() {
+            return new CaptureRule(this);
+        }
+    }
+}
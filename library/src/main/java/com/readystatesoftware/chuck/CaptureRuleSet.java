@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Capture rules compiled into a host map and per-host path tries, so that finding the first
+ * matching rule costs a few map lookups regardless of how many rules there are.
+ */
+final class CaptureRuleSet {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final CaptureRule[] rules;
+    private final Map<String, PathNode> exactHosts = new HashMap<>();
+    // keyed by the domain suffix including its leading dot, e.g. ".example.com"
+    private final Map<String, PathNode> wildcardHosts = new HashMap<>();
+    private final PathNode anyHost = new PathNode();
+
+    CaptureRuleSet(CaptureRule[] rules) {
+        this.rules = rules;
+        for (int i = 0; i < rules.length; i++) {
+            add(i, rules[i]);
+        }
+    }
+
+    /**
+     * @return the first rule matching the request, or null if none does.
+     */
+    CaptureRule match(String host, List<String> pathSegments, String method, String contentType) {
+        int best = NO_MATCH;
+        PathNode root = exactHosts.get(host);
+        if (root != null) {
+            best = root.match(pathSegments, 0, method, contentType, rules, best);
+        }
+        if (!wildcardHosts.isEmpty()) {
+            for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+                root = wildcardHosts.get(host.substring(dot));
+                if (root != null) {
+                    best = root.match(pathSegments, 0, method, contentType, rules, best);
+                }
+            }
+        }
+        best = anyHost.match(pathSegments, 0, method, contentType, rules, best);
+        return (best == NO_MATCH) ? null : rules[best];
+    }
+
+    private void add(int index, CaptureRule rule) {
+        PathNode node;
+        if (rule.host == null) {
+            node = anyHost;
+        } else if (rule.host.startsWith("*.")) {
+            node = getOrCreate(wildcardHosts, rule.host.substring(1));
+        } else {
+            node = getOrCreate(exactHosts, rule.host);
+        }
+        boolean prefix = rule.pathIsPrefix;
+        if (rule.path == null) {
+            prefix = true;
+        } else {
+            for (String segment : rule.path.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (segment.equals("**")) {
+                    prefix = true;
+                    break;
+                }
+                node = segment.equals("*") ? node.wildcardChild() : node.child(segment);
+            }
+        }
+        if (prefix) {
+            node.prefixRules = append(node.prefixRules, index);
+        } else {
+            node.exactRules = append(node.exactRules, index);
+        }
+    }
+
+    private static PathNode getOrCreate(Map<String, PathNode> map, String key) {
+        PathNode node = map.get(key);
+        if (node == null) {
+            node = new PathNode();
+            map.put(key, node);
+        }
+        return node;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static final class PathNode {
+
+        private static final int[] EMPTY = new int[0];
+
+        Map<String, PathNode> children;
+        PathNode wildcard;
+        // rules ending at this node, matching this path only
+        int[] exactRules = EMPTY;
+        // rules ending at this node, matching this path and everything below it
+        int[] prefixRules = EMPTY;
+
+        PathNode child(String segment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return getOrCreate(children, segment);
+        }
+
+        PathNode wildcardChild() {
+            if (wildcard == null) {
+                wildcard = new PathNode();
+            }
+            return wildcard;
+        }
+
+        int match(List<String> segments, int depth, String method, String contentType,
+                  CaptureRule[] rules, int best) {
+            best = first(prefixRules, method, contentType, rules, best);
+            if (depth == segments.size() || (depth == segments.size() - 1 && segments.get(depth).isEmpty())) {
+                // end of the path, ignoring a trailing slash
+                return first(exactRules, method, contentType, rules, best);
+            }
+            if (children != null) {
+                PathNode child = children.get(segments.get(depth));
+                if (child != null) {
+                    best = child.match(segments, depth + 1, method, contentType, rules, best);
+                }
+            }
+            if (wildcard != null) {
+                best = wildcard.match(segments, depth + 1, method, contentType, rules, best);
+            }
+            return best;
+        }
+
+        private static int first(int[] candidates, String method, String contentType,
+                                 CaptureRule[] rules, int best) {
+            for (int index : candidates) {
+                if (index >= best) {
+                    // candidates are in rule order, so nothing later can win
+                    break;
+                }
+                CaptureRule rule = rules[index];
+                if (rule.matchesMethod(method) && rule.matchesContentType(contentType)) {
+                    return index;
+                }
+            }
+            return best;
+        }
+    }
+}
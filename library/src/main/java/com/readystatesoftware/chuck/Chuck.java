@@ -18,6 +18,9 @@ package com.readystatesoftware.chuck;
 import android.content.Context;
 import android.content.Intent;
 
+import com.readystatesoftware.chuck.internal.data.RadioPeriods;
+import com.readystatesoftware.chuck.internal.support.CaptureBudget;
+import com.readystatesoftware.chuck.internal.support.ContentDecoders;
 import com.readystatesoftware.chuck.internal.ui.MainActivity;
 
 /**
@@ -25,6 +28,15 @@ import com.readystatesoftware.chuck.internal.ui.MainActivity;
  */
 public class Chuck {
 
+    /**
+     * A request header that lowers the capture level for a single request, for example
+     * {@code Chuck-Capture: none} to opt out entirely. The header is removed before the request
+     * proceeds.
+     */
+    public static final String CAPTURE_HEADER = "Chuck-Capture";
+
+    static volatile CaptureLevel captureLevel = CaptureLevel.BODY;
+
     /**
      * Get an Intent to launch the Chuck UI directly.
      *
@@ -34,4 +46,59 @@ public class Chuck {
     public static Intent getLaunchIntent(Context context) {
         return new Intent(context, MainActivity.class).setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
     }
-}
\ No newline at end of file
+
+    /**
+     * Set the process-wide limit on request and response body data held in memory by captures
+     * that are still in flight. Once the limit is reached, new captures record headers only.
+     * The default is 4 MB.
+     *
+     * @param bytes the maximum number of body bytes held across all in-flight captures.
+     */
+    public static void setCaptureMemoryBudget(long bytes) {
+        CaptureBudget.setLimit(bytes);
+    }
+
+    /**
+     * Set how long the radio stays active after the last request, which decides whether requests
+     * on the Radio screen share a wake-up. Typical values are 5 to 10 seconds on LTE and up to 15
+     * seconds on 3G. The default is 10 seconds. Periods that are already recorded are not
+     * regrouped.
+     *
+     * @param ms the radio tail time in milliseconds.
+     */
+    public static void setRadioTailTime(long ms) {
+        RadioPeriods.setTailMs(ms);
+    }
+
+    /**
+     * Register a decoder for a content coding, so that request and response bodies sent with it
+     * are recorded as text. A decoder registered for a built-in coding replaces it.
+     *
+     * @param coding the {@code Content-Encoding} token, for example {@code "zstd"}.
+     * @param decoder the decoder, or null to stop decoding the coding.
+     */
+    public static void registerContentDecoder(String coding, ContentDecoder decoder) {
+        ContentDecoders.register(coding, decoder);
+    }
+
+    /**
+     * Set the highest level recorded by every Chuck interceptor in the process. Capture rules and
+     * the {@link #CAPTURE_HEADER} header can only lower it. With {@link CaptureLevel#NONE} the
+     * interceptors pass requests straight through. The default is {@link CaptureLevel#BODY}.
+     *
+     * @param level the capture level to apply from the next request onwards.
+     */
+    public static void setCaptureLevel(CaptureLevel level) {
+        if (level == null) {
+            throw new NullPointerException("level == null");
+        }
+        captureLevel = level;
+    }
+
+    /**
+     * @return the capture level set with {@link #setCaptureLevel(CaptureLevel)}.
+     */
+    public static CaptureLevel getCaptureLevel() {
+        return captureLevel;
+    }
+}
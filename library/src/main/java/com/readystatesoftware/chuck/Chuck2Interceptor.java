@@ -19,16 +19,23 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.data.NetworkHop;
+import com.readystatesoftware.chuck.internal.support.BodyUtils;
+import com.readystatesoftware.chuck.internal.support.CaptureBudget;
+import com.readystatesoftware.chuck.internal.support.CaptureSampler;
+import com.readystatesoftware.chuck.internal.support.ContentDecoders;
+import com.readystatesoftware.chuck.internal.support.DispatcherMonitor;
+import com.readystatesoftware.chuck.internal.support.RedundancyDetector;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
-import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.Request;
@@ -37,9 +44,6 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okhttp3.internal.http.HttpHeaders;
 import okio.Buffer;
-import okio.BufferedSource;
-import okio.GzipSource;
-import okio.Okio;
 
 /**
  * An OkHttp Interceptor which persists and displays HTTP activity in your application for later inspection.
@@ -49,33 +53,216 @@ public abstract class Chuck2Interceptor implements Interceptor {
 
     private static final String LOG_TAG = "ChuckInterceptor";
     private static final Charset UTF8 = StandardCharsets.UTF_8;
+    private static final long NO_RESERVATION = -1L;
     private long maxContentLength = 250000L;
+    private CaptureRuleSet captureRules;
+    private CaptureSampler sampler;
+    volatile DispatcherMonitor dispatcherMonitor;
+    private volatile NetworkHopInterceptor networkHops;
+    private final RedundancyDetector redundancyDetector = new RedundancyDetector();
+
+    /**
+     * Set the maximum length for request and response content before it is truncated.
+     * Warning: setting this value too high may cause unexpected results.
+     *
+     * @param max the maximum length (in bytes) for request/response content.
+     * @return The {@link Chuck2Interceptor} instance.
+     */
+    public Chuck2Interceptor maxContentLength(long max) {
+        this.maxContentLength = max;
+        return this;
+    }
+
+    /**
+     * Set the rules that choose a capture level and content length limit for each request.
+     * Rules are checked in order and the first match applies. Requests matching no rule are
+     * captured in full, up to {@link #maxContentLength(long)}.
+     *
+     * @param rules the capture rules, replacing any set previously.
+     * @return The {@link Chuck2Interceptor} instance.
+     */
+    public Chuck2Interceptor captureRules(CaptureRule... rules) {
+        captureRules = (rules.length > 0) ? new CaptureRuleSet(rules.clone()) : null;
+        return this;
+    }
+
+    /**
+     * Sample high-volume traffic instead of recording every request. Requests that are sampled
+     * out are still counted per endpoint.
+     *
+     * @param sampling the sampling settings, or null to record every request.
+     * @return The {@link Chuck2Interceptor} instance.
+     */
+    public Chuck2Interceptor sampling(Sampling sampling) {
+        sampler = (sampling != null) ? new CaptureSampler(sampling.everyNth, sampling.maxCapturesPerSecond,
+                sampling.maxOverheadPercent, sampling.slowThresholdMs) : null;
+        return this;
+    }
+
+    /**
+     * Returns an interceptor to add with {@code OkHttpClient.Builder.addNetworkInterceptor()}
+     * alongside this one. It records every request that goes over the network for a captured
+     * call, so that redirects and retries appear as hops of that call with their sizes on the
+     * wire.
+     *
+     * @return the network interceptor paired with this interceptor.
+     */
+    public synchronized Interceptor networkInterceptor() {
+        if (networkHops == null) {
+            networkHops = new NetworkHopInterceptor(this);
+        }
+        return networkHops;
+    }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
+        CaptureLevel level = Chuck.captureLevel;
+        if (level == CaptureLevel.NONE) {
+            // switched off at runtime, so stay out of the way
+            return chain.proceed((request.header(Chuck.CAPTURE_HEADER) != null) ?
+                    request.newBuilder().removeHeader(Chuck.CAPTURE_HEADER).build() : request);
+        }
+        long maxLength = maxContentLength;
 
-        HttpTransaction transaction = getHttpTransaction(request);
-        Uri transactionUri = create(transaction);
+        CaptureRuleSet rules = captureRules;
+        if (rules != null) {
+            CaptureRule rule = rules.match(request.url().host(), request.url().encodedPathSegments(),
+                    request.method(), getRequestMediaTypes(request));
+            if (rule != null) {
+                level = CaptureLevel.lowest(level, rule.level);
+                if (rule.maxContentLength >= 0) {
+                    maxLength = rule.maxContentLength;
+                }
+            }
+        }
+        String requestedLevel = request.header(Chuck.CAPTURE_HEADER);
+        if (requestedLevel != null) {
+            request = request.newBuilder().removeHeader(Chuck.CAPTURE_HEADER).build();
+            level = CaptureLevel.lowest(level, CaptureLevel.fromHeader(requestedLevel));
+        }
+        if (level == CaptureLevel.NONE) {
+            return chain.proceed(request);
+        }
+
+        CaptureSampler sampler = this.sampler;
+        if (sampler != null) {
+            String endpoint = CaptureSampler.endpointKey(request);
+            switch (sampler.sample(endpoint)) {
+                case SAMPLE_OUT:
+                    ChuckEventListener listener = ChuckEventListener.claim(chain.call());
+                    trackDispatcher(request, listener);
+                    return proceedSampledOut(chain, request, sampler, level, maxLength, listener);
+                case CAPTURE_WITHOUT_BODY:
+                    level = CaptureLevel.lowest(level, CaptureLevel.HEADERS);
+                    break;
+            }
+        }
+
+        ChuckEventListener listener = ChuckEventListener.claim(chain.call());
+        trackDispatcher(request, listener);
+        NetworkHopInterceptor networkHops = this.networkHops;
+        long interceptStartNs = System.nanoTime();
+        long proceedNs = 0;
+        long sourceWaitNs = 0;
+        // the captured request body stays in memory until the call completes; it is written out
+        // only up to maxLength, so that is the most it can hold
+        long reserved = (level == CaptureLevel.BODY && request.body() != null) ?
+                reserveBody(request.body().contentLength(), maxLength) : NO_RESERVATION;
+        try {
+            HttpTransaction transaction = getHttpTransaction(request, level, reserved != NO_RESERVATION, maxLength);
+            transaction.setRedundancy(redundancyDetector.check(request, transaction));
+            Uri transactionUri = create(transaction);
+            if (listener != null) {
+                listener.attach(this, transaction, transactionUri);
+            }
+
+            NetworkHopInterceptor.Hops hops = (networkHops != null) ?
+                    networkHops.begin(chain.call(), transaction) : null;
+
+            long startNs = System.nanoTime();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (Exception e) {
+                proceedNs = System.nanoTime() - startNs;
+                transaction.setError(e.toString());
+                if (hops != null) {
+                    hops.applyTo(transaction);
+                }
+                update(transaction, transactionUri);
+                throw e;
+            }
+            proceedNs = System.nanoTime() - startNs;
+            long tookMs = TimeUnit.NANOSECONDS.toMillis(proceedNs);
+            if (hops != null) {
+                hops.applyTo(transaction);
+            }
+
+            sourceWaitNs = doAfterResponse(transaction, transactionUri, response, tookMs, level, maxLength);
+            return response;
+        } finally {
+            if (networkHops != null) {
+                networkHops.end(chain.call());
+            }
+            releaseBody(reserved);
+            if (sampler != null) {
+                // only Chuck's own work counts, not waiting for the call or its response body
+                sampler.recordCapture(System.nanoTime() - interceptStartNs - proceedNs - sourceWaitNs);
+            }
+        }
+    }
+
+    private void trackDispatcher(Request request, ChuckEventListener listener) {
+        DispatcherMonitor monitor = dispatcherMonitor;
+        if (monitor != null) {
+            monitor.wake();
+            if (listener != null) {
+                monitor.recordQueueTime(request.url().host(), listener.getQueueTimeUs());
+            }
+        }
+    }
 
+    /**
+     * Proceeds with a request that was sampled out, recording it after the fact only if it
+     * failed or was slow. The request body is not available at that point. Other sampled out
+     * calls are only counted in memory, and stored in batches.
+     */
+    private Response proceedSampledOut(Chain chain, Request request, CaptureSampler sampler, CaptureLevel level,
+                                       long maxLength, ChuckEventListener listener)
+            throws IOException {
+        Date requestDate = new Date();
         long startNs = System.nanoTime();
         Response response;
         try {
             response = chain.proceed(request);
         } catch (Exception e) {
+            HttpTransaction transaction = getHttpTransaction(request, level, false, maxLength);
+            transaction.setRequestDate(requestDate);
             transaction.setError(e.toString());
-            update(transaction, transactionUri);
+            Uri transactionUri = create(transaction);
+            if (listener != null) {
+                listener.attach(this, transaction, transactionUri);
+            }
             throw e;
         }
         long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
-
-        doAfterResponse(transaction, transactionUri, response, tookMs);
+        if (sampler.isFailedOrSlow(response.code(), tookMs)) {
+            HttpTransaction transaction = getHttpTransaction(request, level, false, maxLength);
+            transaction.setRequestDate(requestDate);
+            Uri transactionUri = create(transaction);
+            if (listener != null) {
+                listener.attach(this, transaction, transactionUri);
+            }
+            doAfterResponse(transaction, transactionUri, response, tookMs, level, maxLength);
+        } else if (sampler.recordSampledOut(request, response, requestDate.getTime(), tookMs)) {
+            scheduleSampledOutFlush(sampler);
+        }
         return response;
     }
 
-
-
-    private HttpTransaction getHttpTransaction(Request request) throws IOException {
+    private HttpTransaction getHttpTransaction(Request request, CaptureLevel level, boolean captureBody,
+                                               long maxLength) throws IOException {
 
         RequestBody requestBody = request.body();
         boolean hasRequestBody = requestBody != null;
@@ -86,7 +273,9 @@ public abstract class Chuck2Interceptor implements Interceptor {
         transaction.setMethod(request.method());
         transaction.setUrl(request.url().toString());
 
-        transaction.setRequestHeaders(request.headers());
+        if (level.includes(CaptureLevel.HEADERS)) {
+            transaction.setRequestHeaders(request.headers());
+        }
         if (hasRequestBody) {
             if (requestBody.contentType() != null) {
                 transaction.setRequestContentType(requestBody.contentType().toString());
@@ -96,20 +285,29 @@ public abstract class Chuck2Interceptor implements Interceptor {
             }
         }
 
-        transaction.setRequestBodyIsPlainText(!bodyHasUnsupportedEncoding(request.headers()));
-        if (hasRequestBody && transaction.requestBodyIsPlainText()) {
-            BufferedSource source = getNativeSource(new Buffer(), bodyGzipped(request.headers()));
-            Buffer buffer = source.buffer();
-            requestBody.writeTo(buffer);
+        String contentEncoding = request.header("Content-Encoding");
+        transaction.setRequestBodyIsPlainText(ContentDecoders.isSupported(contentEncoding));
+        if (hasRequestBody && captureBody && transaction.requestBodyIsPlainText()) {
+            // one byte past the limit tells a truncated body from one that fits exactly
+            Buffer encoded = BodyUtils.writeTruncated(requestBody, maxLength + 1);
+            Buffer buffer = null;
+            try {
+                buffer = BodyUtils.peekDecoded(encoded, contentEncoding, maxLength);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Unable to decode request body", e);
+            }
             Charset charset = UTF8;
             MediaType contentType = requestBody.contentType();
             if (contentType != null) {
                 charset = contentType.charset(UTF8);
             }
-            if (isPlaintext(buffer)) {
-                transaction.setRequestBody(readFromBuffer(buffer, charset));
+            if (buffer == null) {
+                transaction.setRequestBodyIsPlainText(false);
+            } else if (isPlaintext(buffer)) {
+                boolean truncated = buffer.size() > maxLength;
+                transaction.setRequestBody(readFromBuffer(buffer, charset, maxLength), charset, truncated);
             } else {
-                transaction.setResponseBodyIsPlainText(false);
+                transaction.setRequestBodyIsPlainText(false);
             }
         }
         return transaction;
@@ -122,35 +320,40 @@ public abstract class Chuck2Interceptor implements Interceptor {
      * @param transactionUri
      * @param response
      * @param tookMs
-     * @return true-处理成功，Response的contentType.charset(UTF8)，设置成功；false-设置失败
+     * @return the time spent waiting for the response body to arrive while capturing it.
      * @throws IOException
      */
-    private void doAfterResponse(HttpTransaction transaction, Uri transactionUri, Response response, long tookMs) throws IOException {
+    private long doAfterResponse(HttpTransaction transaction, Uri transactionUri, Response response, long tookMs,
+                                 CaptureLevel level, long maxLength) throws IOException {
         ResponseBody responseBody = response.body();
         if (responseBody == null) {
-            return;
+            return 0;
         }
 
-        // includes headers added later in the chain
-        transaction.setRequestHeaders(response.request().headers());
+        if (level.includes(CaptureLevel.HEADERS)) {
+            // includes headers added later in the chain
+            transaction.setRequestHeaders(response.request().headers());
+            transaction.setResponseHeaders(response.headers());
+        }
         transaction.setResponseDate(new Date());
         transaction.setTookMs(tookMs);
         transaction.setProtocol(response.protocol().toString());
         transaction.setResponseCode(response.code());
         transaction.setResponseMessage(response.message());
+        transaction.setCacheStatus(getCacheStatus(response));
 
         transaction.setResponseContentLength(responseBody.contentLength());
         if (responseBody.contentType() != null) {
             transaction.setResponseContentType(responseBody.contentType().toString());
         }
-        transaction.setResponseHeaders(response.headers());
-
-        transaction.setResponseBodyIsPlainText(!bodyHasUnsupportedEncoding(response.headers()));
-        if (HttpHeaders.hasBody(response) && transaction.responseBodyIsPlainText()) {
-            BufferedSource source = getNativeSource(response);
-            if (source != null) {
-                source.request(Long.MAX_VALUE);
-                Buffer buffer = source.buffer();
+
+        String contentEncoding = response.header("Content-Encoding");
+        transaction.setResponseBodyIsPlainText(ContentDecoders.isSupported(contentEncoding));
+        long reserved = (level == CaptureLevel.BODY) ?
+                reserveBody(responseBody.contentLength(), maxLength) : NO_RESERVATION;
+        long[] waitNs = new long[1];
+        try {
+            if (reserved != NO_RESERVATION && HttpHeaders.hasBody(response) && transaction.responseBodyIsPlainText()) {
                 Charset charset = UTF8;
                 MediaType contentType = responseBody.contentType();
                 if (contentType != null) {
@@ -158,18 +361,54 @@ public abstract class Chuck2Interceptor implements Interceptor {
                         charset = contentType.charset(UTF8);
                     } catch (UnsupportedCharsetException e) {
                         update(transaction, transactionUri);
-                        return;
+                        return 0;
                     }
                 }
-                if (isPlaintext(buffer)) {
-                    transaction.setResponseBody(readFromBuffer(buffer.clone(), charset));
-                } else {
-                    transaction.setResponseBodyIsPlainText(false);
+                Buffer buffer = null;
+                try {
+                    buffer = BodyUtils.peekDecoded(responseBody.source(), contentEncoding, maxLength, waitNs);
+                } catch (IOException e) {
+                    // a corrupt body, or a network failure that the caller will see when reading it
+                    Log.w(LOG_TAG, "Unable to decode response body", e);
+                }
+                if (buffer != null) {
+                    boolean truncated = buffer.size() > maxLength;
+                    if (!truncated) {
+                        // the whole body was decoded, so this is its real size
+                        transaction.setResponseContentLength(buffer.size());
+                    }
+                    if (isPlaintext(buffer)) {
+                        byte[] body = readFromBuffer(buffer, charset, maxLength);
+                        transaction.setResponseBody(body, charset, truncated);
+                        if (!truncated) {
+                            transaction.setResponseBodyHash(BodyUtils.hash(body));
+                        }
+                    } else {
+                        transaction.setResponseBodyIsPlainText(false);
+                    }
                 }
-                transaction.setResponseContentLength(buffer.size());
             }
+            update(transaction, transactionUri);
+            return waitNs[0];
+        } finally {
+            releaseBody(reserved);
+        }
+    }
+
+    /**
+     * Reserves space in the process-wide capture budget for a body of the given length.
+     *
+     * @return the number of bytes reserved, or NO_RESERVATION if the body should not be captured.
+     */
+    private long reserveBody(long contentLength, long maxLength) {
+        long bytes = (contentLength < 0) ? maxLength : Math.min(contentLength, maxLength);
+        return CaptureBudget.tryAcquire(bytes) ? bytes : NO_RESERVATION;
+    }
+
+    private void releaseBody(long reserved) {
+        if (reserved > 0) {
+            CaptureBudget.release(reserved);
         }
-        update(transaction, transactionUri);
     }
 
     /**
@@ -187,6 +426,31 @@ public abstract class Chuck2Interceptor implements Interceptor {
      */
     protected abstract int update(HttpTransaction transaction, Uri uri);
 
+    /**
+     * Called when a sampled out call is counted and no others are waiting, so that the counts
+     * collected over the next {@link CaptureSampler#FLUSH_DELAY_MS} can be taken with
+     * {@link CaptureSampler#takeSampledOut()} and added to the endpoint and traffic statistics
+     * in one write. Does nothing by default.
+     */
+    protected void scheduleSampledOutFlush(CaptureSampler sampler) {
+    }
+
+    /**
+     * Stores a network request made for the transaction. Called once the hop's response body has
+     * been consumed, which for the last hop is after the transaction itself has been updated.
+     */
+    protected void createHop(HttpTransaction transaction, NetworkHop hop) {
+    }
+
+    /**
+     * Stores the phase timings and connection details that {@link ChuckEventListener} recorded
+     * for the transaction, once its call has ended. Only those columns should be written, as the
+     * transaction has already been stored complete by {@link #update(HttpTransaction, Uri)} and
+     * storing it again would count it twice in the statistics. Does nothing by default.
+     */
+    protected void updateCallEvents(HttpTransaction transaction, Uri uri) {
+    }
+
     /**
      * Returns true if the body in question probably contains human readable text. Uses a small sample
      * of code points to detect unicode control characters commonly used in binary file signatures.
@@ -212,54 +476,30 @@ public abstract class Chuck2Interceptor implements Interceptor {
         }
     }
 
-    private boolean bodyHasUnsupportedEncoding(Headers headers) {
-        String contentEncoding = headers.get("Content-Encoding");
-        return contentEncoding != null &&
-                !"identity".equalsIgnoreCase(contentEncoding) &&
-                !"gzip".equalsIgnoreCase(contentEncoding);
-    }
-
-    private boolean bodyGzipped(Headers headers) {
-        String contentEncoding = headers.get("Content-Encoding");
-        return "gzip".equalsIgnoreCase(contentEncoding);
-    }
-
-    private String readFromBuffer(Buffer buffer, Charset charset) {
-        long bufferSize = buffer.size();
-        long maxBytes = Math.min(bufferSize, maxContentLength);
-        String body = "";
-        try {
-            body = buffer.readString(maxBytes, charset);
-        } catch (EOFException e) {
-            body += "\n\n--- Unexpected end of content ---";
+    private HttpTransaction.CacheStatus getCacheStatus(Response response) {
+        Response networkResponse = response.networkResponse();
+        if (response.cacheResponse() == null) {
+            // an unsatisfiable only-if-cached request has neither
+            return (networkResponse != null) ? HttpTransaction.CacheStatus.Miss : null;
         }
-        if (bufferSize > maxContentLength) {
-            body += "\n\n--- Content truncated ---";
+        if (networkResponse == null) {
+            return HttpTransaction.CacheStatus.Hit;
         }
-        return body;
+        // a changed resource replaces the cached response with a full network response
+        return (networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) ?
+                HttpTransaction.CacheStatus.Conditional : HttpTransaction.CacheStatus.Miss;
     }
 
-    private BufferedSource getNativeSource(BufferedSource input, boolean isGzipped) {
-        if (isGzipped) {
-            GzipSource source = new GzipSource(input);
-            return Okio.buffer(source);
-        } else {
-            return input;
+    private String getRequestMediaTypes(Request request) throws IOException {
+        RequestBody requestBody = request.body();
+        if (requestBody != null && requestBody.contentType() != null) {
+            return requestBody.contentType().toString();
         }
+        String contentType = request.header("Content-Type");
+        return (contentType != null) ? contentType : request.header("Accept");
     }
 
-    private BufferedSource getNativeSource(Response response) throws IOException {
-        if (bodyGzipped(response.headers())) {
-            BufferedSource source = response.peekBody(maxContentLength).source();
-            if (source.buffer().size() < maxContentLength) {
-                return getNativeSource(source, true);
-            } else {
-                Log.w(LOG_TAG, "gzip encoded response was too long");
-            }
-        }
-        if (response.body() != null) {
-            return response.body().source();
-        }
-        return null;
+    private byte[] readFromBuffer(Buffer buffer, Charset charset, long maxLength) throws EOFException {
+        return BodyUtils.readTruncated(buffer, maxLength, charset);
     }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+import android.net.Uri;
+
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.support.ConnectionTracker;
+import com.readystatesoftware.chuck.internal.support.PhaseTimings;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * An OkHttp EventListener that times the phases of each call (waiting in the dispatcher, DNS,
+ * connect, TLS handshake, request, waiting for the first byte and reading the response) and stores them with the
+ * transaction captured by {@link ChuckInterceptor} for the same call. Install both on the client:
+ *
+ * <pre>{@code
+ * new OkHttpClient.Builder()
+ *     .addInterceptor(new ChuckInterceptor(context))
+ *     .eventListenerFactory(ChuckEventListener.factory())
+ *     .build();
+ * }</pre>
+ */
+public final class ChuckEventListener extends EventListener {
+
+    private static final EventListener.Factory FACTORY = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            // nothing will claim the listener, so keep the uncaptured path free
+            return (Chuck.captureLevel == CaptureLevel.NONE) ? EventListener.NONE : new ChuckEventListener();
+        }
+    };
+
+    // listeners of calls that have started but not yet reached the interceptor
+    private static final Map<Call, ChuckEventListener> pending = new ConcurrentHashMap<>();
+
+    // events of an async call arrive on the caller's thread and then the dispatcher's, and a
+    // cancel can end it on a third, so state is written and read under the listener's lock
+    private volatile PhaseTimings timings;
+    private boolean connecting;
+    private long connectStartMs;
+    private ConnectionTracker.Usage connectionUsage;
+    private boolean connectionReused;
+    private Boolean tlsResumed;
+    private long requestWireBytes = -1;
+    private long responseWireBytes = -1;
+    private String wireContentEncoding;
+    private Chuck2Interceptor interceptor;
+    private HttpTransaction transaction;
+    private Uri transactionUri;
+
+    private ChuckEventListener() {
+    }
+
+    public static EventListener.Factory factory() {
+        return FACTORY;
+    }
+
+    /**
+     * Hands the listener of the call to the interceptor, which then owns the reference.
+     *
+     * @return the listener, or null if the client was built without this listener.
+     */
+    static ChuckEventListener claim(Call call) {
+        ChuckEventListener listener = pending.remove(call);
+        if (listener != null) {
+            listener.mark(PhaseTimings.INTERCEPT_START);
+        }
+        return listener;
+    }
+
+    /**
+     * @return how long the call waited in the dispatcher before reaching the interceptor.
+     */
+    synchronized long getQueueTimeUs() {
+        return timings.getOffsetUs(PhaseTimings.INTERCEPT_START);
+    }
+
+    /**
+     * Ties the call to its captured transaction. The timings and connection details are stored
+     * once the call ends.
+     */
+    synchronized void attach(Chuck2Interceptor interceptor, HttpTransaction transaction, Uri transactionUri) {
+        this.interceptor = interceptor;
+        this.transaction = transaction;
+        this.transactionUri = transactionUri;
+    }
+
+    private synchronized void mark(int event) {
+        PhaseTimings timings = this.timings;
+        if (timings != null) {
+            timings.mark(event);
+        }
+    }
+
+    private void finish(Call call) {
+        pending.remove(call);
+        mark(PhaseTimings.CALL_END);
+        Chuck2Interceptor interceptor;
+        HttpTransaction transaction;
+        Uri transactionUri;
+        synchronized (this) {
+            interceptor = this.interceptor;
+            transaction = this.transaction;
+            transactionUri = this.transactionUri;
+            this.interceptor = null;
+            if (interceptor == null || timings == null) {
+                return;
+            }
+            transaction.setTimings(timings.toBytes());
+            transaction.setWireSizes((requestWireBytes >= 0) ? requestWireBytes : null,
+                    (responseWireBytes >= 0) ? responseWireBytes : null, wireContentEncoding);
+            ConnectionTracker.Usage usage = connectionUsage;
+            if (usage != null) {
+                transaction.setConnection(connectionReused, tlsResumed, usage.callNumber,
+                        usage.concurrentCalls, usage.ageMs);
+            }
+        }
+        interceptor.updateCallEvents(transaction, transactionUri);
+    }
+
+    @Override
+    public synchronized void callStart(Call call) {
+        timings = new PhaseTimings();
+        pending.put(call, this);
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        mark(PhaseTimings.DNS_START);
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        mark(PhaseTimings.DNS_END);
+    }
+
+    @Override
+    public synchronized void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        mark(PhaseTimings.CONNECT_START);
+        connecting = true;
+        connectStartMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        mark(PhaseTimings.SECURE_CONNECT_START);
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        mark(PhaseTimings.SECURE_CONNECT_END);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        mark(PhaseTimings.CONNECT_END);
+    }
+
+    @Override
+    public synchronized void connectionAcquired(Call call, Connection connection) {
+        connectionUsage = ConnectionTracker.acquire(connection);
+        connectionReused = !connecting;
+        tlsResumed = null;
+        if (connecting && connection.handshake() != null && connection.socket() instanceof SSLSocket) {
+            // a resumed session keeps the creation time of the handshake that established it
+            SSLSession session = ((SSLSocket) connection.socket()).getSession();
+            tlsResumed = session.getCreationTime() < connectStartMs;
+        }
+        connecting = false;
+    }
+
+    @Override
+    public void connectionReleased(Call call, Connection connection) {
+        ConnectionTracker.release(connection);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        mark(PhaseTimings.REQUEST_START);
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        mark(PhaseTimings.REQUEST_END);
+    }
+
+    @Override
+    public synchronized void requestBodyEnd(Call call, long byteCount) {
+        mark(PhaseTimings.REQUEST_END);
+        requestWireBytes = byteCount;
+    }
+
+    @Override
+    public synchronized void responseHeadersEnd(Call call, Response response) {
+        mark(PhaseTimings.RESPONSE_HEADERS_END);
+        // the network response, before transparent gzip is removed
+        wireContentEncoding = response.header("Content-Encoding");
+    }
+
+    @Override
+    public synchronized void responseBodyEnd(Call call, long byteCount) {
+        mark(PhaseTimings.RESPONSE_END);
+        responseWireBytes = byteCount;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        finish(call);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        finish(call);
+    }
+}
@@ -15,42 +15,30 @@
  */
 package com.readystatesoftware.chuck;
 
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.net.Uri;
-import android.support.annotation.NonNull;
-import android.util.Log;
 
 import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
 import com.readystatesoftware.chuck.internal.data.HttpTransaction;
 import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+import com.readystatesoftware.chuck.internal.data.NetworkHop;
+import com.readystatesoftware.chuck.internal.support.CaptureBudget;
+import com.readystatesoftware.chuck.internal.support.CaptureSampler;
+import com.readystatesoftware.chuck.internal.support.ChuckExecutor;
+import com.readystatesoftware.chuck.internal.support.DispatcherMonitor;
 import com.readystatesoftware.chuck.internal.support.NotificationHelper;
 import com.readystatesoftware.chuck.internal.support.RetentionManager;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.charset.UnsupportedCharsetException;
-import java.util.Date;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
 
-import okhttp3.Headers;
-import okhttp3.Interceptor;
-import okhttp3.MediaType;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
-import okhttp3.internal.http.HttpHeaders;
-import okio.Buffer;
-import okio.BufferedSource;
-import okio.GzipSource;
-import okio.Okio;
+import okhttp3.Dispatcher;
 
 /**
  * An OkHttp Interceptor which persists and displays HTTP activity in your application for later inspection.
  */
-public final class ChuckInterceptor implements Interceptor {
+public final class ChuckInterceptor extends Chuck2Interceptor {
 
     public enum Period {
         /**
@@ -71,22 +59,22 @@ public final class ChuckInterceptor implements Interceptor {
         FOREVER
     }
 
-    private static final String LOG_TAG = "ChuckInterceptor";
     private static final Period DEFAULT_RETENTION = Period.ONE_WEEK;
-    private static final Charset UTF8 = Charset.forName("UTF-8");
 
     private final Context context;
-    private final NotificationHelper notificationHelper;
-    private RetentionManager retentionManager;
-    private boolean showNotification;
-    private long maxContentLength = 250000L;
+    // only touched on the writer thread, created with the first captured request
+    private NotificationHelper notificationHelper;
+    private volatile RetentionManager retentionManager;
+    private volatile boolean showNotification;
 
     /**
+     * Creating the interceptor does no I/O, so it is safe to build during application startup.
+     * Notification and database setup is deferred until the first request is captured.
+     *
      * @param context The current Context.
      */
     public ChuckInterceptor(Context context) {
         this.context = context.getApplicationContext();
-        notificationHelper = new NotificationHelper(this.context);
         showNotification = true;
         retentionManager = new RetentionManager(this.context, DEFAULT_RETENTION);
     }
@@ -109,11 +97,53 @@ public final class ChuckInterceptor implements Interceptor {
      * @param max the maximum length (in bytes) for request/response content.
      * @return The {@link ChuckInterceptor} instance.
      */
+    @Override
     public ChuckInterceptor maxContentLength(long max) {
-        this.maxContentLength = max;
+        super.maxContentLength(max);
         return this;
     }
   
+    /**
+     * Set the rules that choose a capture level and content length limit for each request.
+     * Rules are checked in order and the first match applies. Requests matching no rule are
+     * captured in full, up to {@link #maxContentLength(long)}.
+     *
+     * @param rules the capture rules, replacing any set previously.
+     * @return The {@link ChuckInterceptor} instance.
+     */
+    @Override
+    public ChuckInterceptor captureRules(CaptureRule... rules) {
+        super.captureRules(rules);
+        return this;
+    }
+
+    /**
+     * Sample high-volume traffic instead of recording every request. Requests that are sampled
+     * out are still counted per endpoint.
+     *
+     * @param sampling the sampling settings, or null to record every request.
+     * @return The {@link ChuckInterceptor} instance.
+     */
+    @Override
+    public ChuckInterceptor sampling(Sampling sampling) {
+        super.sampling(sampling);
+        return this;
+    }
+
+    /**
+     * Watch the dispatcher of the client this interceptor is added to. While it has calls,
+     * Chuck samples its running and queued calls per host and shows on the Traffic screen which
+     * hosts keep calls waiting. With {@link ChuckEventListener} installed, the time each call
+     * spent queued is recorded as well.
+     *
+     * @param dispatcher the dispatcher also passed to {@code OkHttpClient.Builder.dispatcher()}.
+     * @return The {@link ChuckInterceptor} instance.
+     */
+    public ChuckInterceptor monitorDispatcher(Dispatcher dispatcher) {
+        dispatcherMonitor = new DispatcherMonitor(context, dispatcher);
+        return this;
+    }
+
     /**
      * Set the retention period for HTTP transaction data captured by this interceptor.
      * The default is one week.
@@ -126,215 +156,183 @@ public final class ChuckInterceptor implements Interceptor {
         return this;
     }
 
+    /**
+     * Queues the transaction for insertion on the writer thread. The row does not exist yet when
+     * this returns, so there is no Uri to give back; {@link #update(HttpTransaction, Uri)} finds
+     * the row through the id the insert assigns.
+     */
     @Override
-    public Response intercept(Chain chain) throws IOException {
-        Request request = chain.request();
-
-        HttpTransaction transaction = getHttpTransaction(request);
-        Uri transactionUri = create(transaction);
-
-        long startNs = System.nanoTime();
-        Response response;
-        try {
-            response = chain.proceed(request);
-        } catch (Exception e) {
-            transaction.setError(e.toString());
-            update(transaction, transactionUri);
-            throw e;
-        }
-        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
-
-        doAfterResponse(transaction, transactionUri, response, tookMs);
-        return response;
-    }
-
-    private HttpTransaction getHttpTransaction(Request request) throws IOException {
-
-        RequestBody requestBody = request.body();
-        boolean hasRequestBody = requestBody != null;
-
-        HttpTransaction transaction = new HttpTransaction();
-        transaction.setRequestDate(new Date());
-
-        transaction.setMethod(request.method());
-        transaction.setUrl(request.url().toString());
-
-        transaction.setRequestHeaders(request.headers());
-        if (hasRequestBody) {
-            if (requestBody.contentType() != null) {
-                transaction.setRequestContentType(requestBody.contentType().toString());
-            }
-            if (requestBody.contentLength() != -1) {
-                transaction.setRequestContentLength(requestBody.contentLength());
-            }
-        }
-
-        transaction.setRequestBodyIsPlainText(!bodyHasUnsupportedEncoding(request.headers()));
-        if (hasRequestBody && transaction.requestBodyIsPlainText()) {
-            BufferedSource source = getNativeSource(new Buffer(), bodyGzipped(request.headers()));
-            Buffer buffer = source.buffer();
-            requestBody.writeTo(buffer);
-            Charset charset = UTF8;
-            MediaType contentType = requestBody.contentType();
-            if (contentType != null) {
-                charset = contentType.charset(UTF8);
-            }
-            if (isPlaintext(buffer)) {
-                transaction.setRequestBody(readFromBuffer(buffer, charset));
-            } else {
-                transaction.setResponseBodyIsPlainText(false);
+    protected Uri create(final HttpTransaction transaction) {
+        final ContentValues values = toContentValues(transaction);
+        final String notificationText = transaction.getNotificationText();
+        final long queuedBytes = holdBodies(transaction);
+        ChuckExecutor.write(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ensureStarted();
+                    Uri uri = context.getContentResolver().insert(ChuckContentProvider.TRANSACTION_URI, values);
+                    if (uri != null) {
+                        long id = ContentUris.parseId(uri);
+                        transaction.setId(id);
+                        if (showNotification) {
+                            notificationHelper.show(id, notificationText, true);
+                        }
+                    }
+                    retentionManager.doMaintenance();
+                } finally {
+                    CaptureBudget.release(queuedBytes);
+                }
             }
-        }
-        return transaction;
+        });
+        return null;
     }
 
     /**
-     * 对应答后的报文进行处理
+     * Queues an update of the transaction row behind its insert.
      *
-     * @param transaction
-     * @param transactionUri
-     * @param response
-     * @param tookMs
-     * @return true-处理成功，Response的contentType.charset(UTF8)，设置成功；false-设置失败
-     * @throws IOException
+     * @return always 0, as the update has not run yet.
      */
-    private void doAfterResponse(
-            HttpTransaction transaction, Uri transactionUri, @NonNull Response response, long tookMs)
-            throws IOException {
-        ResponseBody responseBody = response.body();
-        if (responseBody == null) {
-            return;
-        }
-        // includes headers added later in the chain
-        transaction.setRequestHeaders(response.request().headers());
-        transaction.setResponseDate(new Date());
-        transaction.setTookMs(tookMs);
-        transaction.setProtocol(response.protocol().toString());
-        transaction.setResponseCode(response.code());
-        transaction.setResponseMessage(response.message());
-
-        transaction.setResponseContentLength(responseBody.contentLength());
-        final MediaType mediaType = responseBody.contentType();
-        if (mediaType != null) {
-            transaction.setResponseContentType(mediaType.toString());
-        }
-        transaction.setResponseHeaders(response.headers());
-
-        transaction.setResponseBodyIsPlainText(!bodyHasUnsupportedEncoding(response.headers()));
-        if (HttpHeaders.hasBody(response) && transaction.responseBodyIsPlainText()) {
-            BufferedSource source = getNativeSource(response);
-            source.request(Long.MAX_VALUE);
-            Buffer buffer = source.buffer();
-            Charset charset = UTF8;
-            MediaType contentType = mediaType;
-            if (contentType != null) {
+    @Override
+    protected int update(final HttpTransaction transaction, Uri uri) {
+        final ContentValues values = toContentValues(transaction);
+        // the id is assigned on the writer thread, which is where the update runs
+        values.remove("_id");
+        final String notificationText = transaction.getNotificationText();
+        final long queuedBytes = holdBodies(transaction);
+        ChuckExecutor.write(new Runnable() {
+            @Override
+            public void run() {
                 try {
-                    charset = contentType.charset(UTF8);
-                } catch (UnsupportedCharsetException e) {
-                    update(transaction, transactionUri);
-                    return;
+                    Long id = transaction.getId();
+                    if (id == null) {
+                        return;
+                    }
+                    int updated = context.getContentResolver().update(
+                            ContentUris.withAppendedId(ChuckContentProvider.TRANSACTION_URI, id), values, null, null);
+                    if (showNotification && updated > 0) {
+                        notificationHelper.show(id, notificationText, false);
+                    }
+                } finally {
+                    CaptureBudget.release(queuedBytes);
                 }
             }
-            if (isPlaintext(buffer)) {
-                transaction.setResponseBody(readFromBuffer(buffer.clone(), charset));
-            } else {
-                transaction.setResponseBodyIsPlainText(false);
-            }
-            transaction.setResponseContentLength(buffer.size());
-        }
-        update(transaction, transactionUri);
-    }
-
-    private Uri create(HttpTransaction transaction) {
-        ContentValues values = LocalCupboard.getInstance().withEntity(HttpTransaction.class).toContentValues(transaction);
-        Uri uri = context.getContentResolver().insert(ChuckContentProvider.TRANSACTION_URI, values);
-        transaction.setId(Long.valueOf(uri.getLastPathSegment()));
-        if (showNotification) {
-            notificationHelper.show(transaction);
-        }
-        retentionManager.doMaintenance();
-        return uri;
-    }
-
-    private int update(HttpTransaction transaction, Uri uri) {
-        ContentValues values = LocalCupboard.getInstance().withEntity(HttpTransaction.class).toContentValues(transaction);
-        int updated = context.getContentResolver().update(uri, values, null, null);
-        if (showNotification && updated > 0) {
-            notificationHelper.show(transaction);
-        }
-        return updated;
+        });
+        return 0;
     }
 
     /**
-     * Returns true if the body in question probably contains human readable text. Uses a small sample
-     * of code points to detect unicode control characters commonly used in binary file signatures.
+     * Queues a write of the timing, connection and wire size columns alone, behind the
+     * transaction's other writes, and adds the connection to the host's reuse counts.
      */
-    private boolean isPlaintext(Buffer buffer) {
-        try {
-            Buffer prefix = new Buffer();
-            long byteCount = buffer.size() < 64 ? buffer.size() : 64;
-            buffer.copyTo(prefix, 0, byteCount);
-            for (int i = 0; i < 16; i++) {
-                if (prefix.exhausted()) {
-                    break;
+    @Override
+    protected void updateCallEvents(final HttpTransaction transaction, Uri uri) {
+        final ContentValues values = new ContentValues();
+        values.put("timings", transaction.getTimings());
+        values.put("connectionReused", transaction.getConnectionReused());
+        values.put("tlsResumed", transaction.getTlsResumed());
+        values.put("connectionCalls", transaction.getConnectionCalls());
+        values.put("concurrentCalls", transaction.getConcurrentCalls());
+        values.put("connectionAgeMs", transaction.getConnectionAgeMs());
+        values.put("requestWireBytes", transaction.getRequestWireBytes());
+        values.put("responseWireBytes", transaction.getResponseWireBytes());
+        values.put("wireContentEncoding", transaction.getWireContentEncoding());
+        final ContentValues rollup = getConnectionRollup(transaction);
+        ChuckExecutor.write(new Runnable() {
+            @Override
+            public void run() {
+                Long id = transaction.getId();
+                if (id == null) {
+                    return;
                 }
-                int codePoint = prefix.readUtf8CodePoint();
-                if (Character.isISOControl(codePoint) && !Character.isWhitespace(codePoint)) {
-                    return false;
+                context.getContentResolver().update(
+                        ContentUris.withAppendedId(ChuckContentProvider.TRANSACTION_URI, id), values, null, null);
+                if (rollup != null) {
+                    context.getContentResolver().insert(ChuckContentProvider.ROLLUP_URI, rollup);
                 }
             }
-            return true;
-        } catch (EOFException e) {
-            // Truncated UTF-8 sequence.
-            return false;
-        }
+        });
     }
 
-    private boolean bodyHasUnsupportedEncoding(Headers headers) {
-        String contentEncoding = headers.get("Content-Encoding");
-        return contentEncoding != null &&
-                !"identity".equalsIgnoreCase(contentEncoding) &&
-                !"gzip".equalsIgnoreCase(contentEncoding);
+    /**
+     * Queues a write of the sampled out calls counted until it runs.
+     */
+    @Override
+    protected void scheduleSampledOutFlush(final CaptureSampler sampler) {
+        ChuckExecutor.writeLater(new Runnable() {
+            @Override
+            public void run() {
+                ensureStarted();
+                List<ContentValues> counts = sampler.takeSampledOut();
+                if (!counts.isEmpty()) {
+                    context.getContentResolver().bulkInsert(ChuckContentProvider.ENDPOINT_URI,
+                            counts.toArray(new ContentValues[counts.size()]));
+                }
+            }
+        }, CaptureSampler.FLUSH_DELAY_MS);
     }
 
-    private boolean bodyGzipped(Headers headers) {
-        String contentEncoding = headers.get("Content-Encoding");
-        return "gzip".equalsIgnoreCase(contentEncoding);
+    /**
+     * Queues the hop's insert, linked to the transaction through the id its own insert assigned.
+     */
+    @Override
+    protected void createHop(final HttpTransaction transaction, final NetworkHop hop) {
+        ChuckExecutor.write(new Runnable() {
+            @Override
+            public void run() {
+                Long id = transaction.getId();
+                if (id == null) {
+                    return;
+                }
+                hop.setTransactionId(id);
+                context.getContentResolver().insert(ChuckContentProvider.HOP_URI,
+                        LocalCupboard.getInstance().withEntity(NetworkHop.class).toContentValues(hop));
+            }
+        });
     }
 
-    private String readFromBuffer(Buffer buffer, Charset charset) {
-        long bufferSize = buffer.size();
-        long maxBytes = Math.min(bufferSize, maxContentLength);
-        String body = "";
-        try {
-            body = buffer.readString(maxBytes, charset);
-        } catch (EOFException e) {
-            body += context.getString(R.string.chuck_body_unexpected_eof);
+    private static ContentValues getConnectionRollup(HttpTransaction transaction) {
+        Boolean reused = transaction.getConnectionReused();
+        if (reused == null || transaction.getHost() == null || transaction.getRequestDate() == null) {
+            return null;
         }
-        if (bufferSize > maxContentLength) {
-            body += context.getString(R.string.chuck_body_content_truncated);
+        ContentValues values = new ContentValues();
+        values.put("time", transaction.getRequestDate().getTime());
+        values.put("host", transaction.getHost());
+        values.put("reusedConnectionCalls", reused ? 1 : 0);
+        values.put("newConnectionCalls", reused ? 0 : 1);
+        Boolean tlsResumed = transaction.getTlsResumed();
+        if (tlsResumed != null) {
+            values.put("tlsHandshakes", 1);
+            values.put("tlsResumptions", tlsResumed ? 1 : 0);
         }
-        return body;
+        return values;
     }
 
-    private BufferedSource getNativeSource(BufferedSource input, boolean isGzipped) {
-        if (isGzipped) {
-            GzipSource source = new GzipSource(input);
-            return Okio.buffer(source);
-        } else {
-            return input;
-        }
+    /**
+     * Counts the captured bodies against the capture budget until the queued write that copies
+     * them has run, so that a backed up writer makes new captures fall back to headers only
+     * rather than growing the queue without limit.
+     *
+     * @return the bytes to release once the write has run.
+     */
+    private static long holdBodies(HttpTransaction transaction) {
+        byte[] requestBody = transaction.getRequestBodyBytes();
+        byte[] responseBody = transaction.getResponseBodyBytes();
+        long bytes = ((requestBody != null) ? requestBody.length : 0)
+                + ((responseBody != null) ? responseBody.length : 0);
+        CaptureBudget.acquire(bytes);
+        return bytes;
     }
 
-    private BufferedSource getNativeSource(Response response) throws IOException {
-        if (bodyGzipped(response.headers())) {
-            BufferedSource source = response.peekBody(maxContentLength).source();
-            if (source.buffer().size() < maxContentLength) {
-                return getNativeSource(source, true);
-            } else {
-                Log.w(LOG_TAG, "gzip encoded response was too long");
-            }
+    private static ContentValues toContentValues(HttpTransaction transaction) {
+        return LocalCupboard.getInstance().withEntity(HttpTransaction.class).toContentValues(transaction);
+    }
+
+    private void ensureStarted() {
+        if (notificationHelper == null) {
+            notificationHelper = new NotificationHelper(context);
+            CaptureBudget.register(context);
         }
-        return response.body().source();
     }
 }
@@ -78,8 +78,8 @@ public final class ChuckTranction {
         if (transactionId != null) {
             transaction.setId(transactionId);
         }
-        if (showNotification) {
-            notificationHelper.show(transaction);
+        if (showNotification && transactionId != null) {
+            notificationHelper.show(transactionId, transaction.getNotificationText(), true);
         }
         retentionManager.doMaintenance();
         return uri;
@@ -109,7 +109,7 @@ public final class ChuckTranction {
         ContentValues values = LocalCupboard.getInstance().withEntity(HttpTransaction.class).toContentValues(transaction);
         int updated = context.getContentResolver().update(uri, values, null, null);
         if (showNotification && updated > 0) {
-            notificationHelper.show(transaction);
+            notificationHelper.show(transactionId, transaction.getNotificationText(), false);
         }
         return updated;
     }
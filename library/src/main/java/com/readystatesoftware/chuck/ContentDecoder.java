@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+import java.io.IOException;
+
+import okio.Source;
+
+/**
+ * Decodes a body sent with a {@code Content-Encoding}, so that Chuck can record it as text.
+ * Decoders for gzip and deflate are built in, as is brotli when the org.brotli:dec library is
+ * on the classpath. Others can be added with
+ * {@link Chuck#registerContentDecoder(String, ContentDecoder)}.
+ */
+public interface ContentDecoder {
+
+    /**
+     * @param encoded the encoded body. Chuck reads only as much of the result as it records, so
+     *                decoders should decode as they are read rather than up front.
+     * @return a source of the decoded body. Closing it must close {@code encoded}.
+     */
+    Source decode(Source encoded) throws IOException;
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.data.NetworkHop;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * The network interceptor half of a {@link Chuck2Interceptor}. It records each request that
+ * goes over the network for a call the application interceptor is capturing, so redirects and
+ * retries are stored as hops of that one transaction.
+ */
+final class NetworkHopInterceptor implements Interceptor {
+
+    private final Chuck2Interceptor interceptor;
+    // calls that are inside the application interceptor, and so have a transaction
+    private final Map<Call, Hops> calls = new ConcurrentHashMap<>();
+
+    /**
+     * The hops of one call. A call's network requests run one after another, but the summary
+     * is read from the application interceptor's thread.
+     */
+    static final class Hops {
+        final HttpTransaction transaction;
+        private final List<NetworkHop> hops = new ArrayList<>();
+
+        Hops(HttpTransaction transaction) {
+            this.transaction = transaction;
+        }
+
+        synchronized NetworkHop next(Request request) {
+            NetworkHop hop = new NetworkHop(hops.size() + 1, request.method(), request.url().toString());
+            hops.add(hop);
+            return hop;
+        }
+
+        /**
+         * Adds the hop count, and the redirects that were followed and the time they took, to
+         * the transaction.
+         */
+        synchronized void applyTo(HttpTransaction transaction) {
+            int redirects = 0;
+            long redirectMs = 0;
+            for (int i = 0; i < hops.size() - 1; i++) {
+                NetworkHop hop = hops.get(i);
+                if (hop.isRedirect()) {
+                    redirects++;
+                    redirectMs += (hop.getTookMs() != null) ? hop.getTookMs() : 0;
+                }
+            }
+            transaction.setNetworkHops(hops.size(), redirects, redirectMs);
+        }
+    }
+
+    NetworkHopInterceptor(Chuck2Interceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    Hops begin(Call call, HttpTransaction transaction) {
+        Hops hops = new Hops(transaction);
+        calls.put(call, hops);
+        return hops;
+    }
+
+    void end(Call call) {
+        calls.remove(call);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Hops hops = calls.get(chain.call());
+        if (hops == null) {
+            return chain.proceed(request);
+        }
+        final HttpTransaction transaction = hops.transaction;
+        final NetworkHop hop = hops.next(request);
+        if (request.body() != null) {
+            hop.setRequestWireBytes(request.body().contentLength());
+        }
+        long startNs = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            hop.setTookMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+            hop.setError(e.toString());
+            interceptor.createHop(transaction, hop);
+            throw e;
+        }
+        hop.setTookMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+        hop.setResponse(response.protocol().toString(), response.code(), response.message(),
+                response.header("Location"), response.header("Content-Encoding"));
+        ResponseBody body = response.body();
+        if (body == null) {
+            interceptor.createHop(transaction, hop);
+            return response;
+        }
+        // the hop is stored once its body has been read or closed, when the wire size is known
+        return response.newBuilder().body(new CountingBody(body, new CountingBody.Callback() {
+            @Override
+            public void onDone(long bytesRead) {
+                hop.setResponseWireBytes(bytesRead);
+                interceptor.createHop(transaction, hop);
+            }
+        })).build();
+    }
+
+    /**
+     * Counts the bytes of a network response body as they are read, before any decoding.
+     */
+    private static final class CountingBody extends ResponseBody {
+
+        interface Callback {
+            void onDone(long bytesRead);
+        }
+
+        private final ResponseBody body;
+        private final BufferedSource source;
+
+        CountingBody(ResponseBody body, Callback callback) {
+            this.body = body;
+            this.source = Okio.buffer(new CountingSource(body, callback));
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+
+    private static final class CountingSource extends ForwardingSource {
+
+        private final ResponseBody body;
+        private final CountingBody.Callback callback;
+        private long bytesRead;
+        private boolean done;
+
+        CountingSource(ResponseBody body, CountingBody.Callback callback) {
+            super(body.source());
+            this.body = body;
+            this.callback = callback;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read == -1) {
+                finish();
+            } else {
+                bytesRead += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            super.close();
+        }
+
+        private void finish() {
+            if (!done) {
+                done = true;
+                // a body that was closed unread still reports its declared length
+                long length = body.contentLength();
+                callback.onDone((bytesRead == 0 && length > 0) ? length : bytesRead);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling settings for high-volume traffic. Failed requests (an error or a 4xx/5xx response) and
+ * slow requests are always recorded, whatever the sampling rate.
+ */
+public final class Sampling {
+
+    final int everyNth;
+    final int maxCapturesPerSecond;
+    final int maxOverheadPercent;
+    final long slowThresholdMs;
+
+    private Sampling(Builder builder) {
+        everyNth = builder.everyNth;
+        maxCapturesPerSecond = builder.maxCapturesPerSecond;
+        maxOverheadPercent = builder.maxOverheadPercent;
+        slowThresholdMs = builder.slowThresholdMs;
+    }
+
+    public static final class Builder {
+
+        private int everyNth = 1;
+        private int maxCapturesPerSecond;
+        private int maxOverheadPercent;
+        private long slowThresholdMs = TimeUnit.SECONDS.toMillis(2);
+
+        /**
+         * Record only one in every n requests to each endpoint (method, host and path).
+         */
+        public Builder everyNth(int n) {
+            this.everyNth = Math.max(1, n);
+            return this;
+        }
+
+        /**
+         * Lower the rate at which request and response bodies are recorded whenever captures exceed
+         * the given rate, or capture work exceeds the given percentage of wall clock time. The rate
+         * recovers gradually once both are back under target. Zero disables either check.
+         */
+        public Builder adaptive(int maxCapturesPerSecond, int maxOverheadPercent) {
+            this.maxCapturesPerSecond = maxCapturesPerSecond;
+            this.maxOverheadPercent = maxOverheadPercent;
+            return this;
+        }
+
+        /**
+         * Requests taking at least this long are always recorded. The default is two seconds.
+         */
+        public Builder slowThreshold(long duration, TimeUnit unit) {
+            this.slowThresholdMs = unit.toMillis(duration);
+            return this;
+        }
+
+        public Sampling build() {
+            return new Sampling(this);
+        }
+    }
+}
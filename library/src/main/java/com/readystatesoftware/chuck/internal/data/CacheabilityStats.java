@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import nl.qbusict.cupboard.annotation.Index;
+import okhttp3.HttpUrl;
+
+/**
+ * Full fetches of one URL and how many of them returned the same body as the fetch before,
+ * updated as each transaction completes so that the advisor never rescans the history.
+ */
+public class CacheabilityStats {
+
+    private Long _id;
+    @Index private String url;
+    private String host;
+    // the HAR file the calls were imported from, or null for captured traffic
+    private String source;
+    private long fetches;
+    private long repeats;
+    private long repeatBytes;
+    private long repeatMs;
+    private String lastHash;
+    // from the latest response
+    private boolean freshness;
+    private boolean validators;
+    private Date lastSeen;
+
+    public CacheabilityStats() {
+    }
+
+    CacheabilityStats(String url, String host, String source) {
+        this.url = url;
+        this.host = host;
+        this.source = source;
+    }
+
+    /**
+     * @return the URL with its query parameters sorted, so that the same resource requested with
+     * its parameters in a different order is counted together.
+     */
+    static String normalizeUrl(String url) {
+        HttpUrl httpUrl = (url != null) ? HttpUrl.parse(url) : null;
+        if (httpUrl == null) {
+            return url;
+        }
+        HttpUrl.Builder builder = httpUrl.newBuilder().query(null).fragment(null);
+        List<String> names = new ArrayList<>(httpUrl.queryParameterNames());
+        Collections.sort(names);
+        for (String name : names) {
+            for (String value : httpUrl.queryParameterValues(name)) {
+                builder.addQueryParameter(name, value);
+            }
+        }
+        return builder.build().toString();
+    }
+
+    void record(String hash, long bytes, long tookMs, boolean freshness, boolean validators, Date date) {
+        fetches++;
+        if (hash.equals(lastHash)) {
+            repeats++;
+            repeatBytes += bytes;
+            repeatMs += tookMs;
+        }
+        lastHash = hash;
+        this.freshness = freshness;
+        this.validators = validators;
+        lastSeen = date;
+    }
+
+    public Long getId() {
+        return _id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public long getFetches() {
+        return fetches;
+    }
+
+    /**
+     * @return the fetches that returned the same body as the previous fetch.
+     */
+    public long getRepeats() {
+        return repeats;
+    }
+
+    /**
+     * @return the response bytes of the repeated fetches, which caching would have saved.
+     */
+    public long getRepeatBytes() {
+        return repeatBytes;
+    }
+
+    /**
+     * @return the time taken by the repeated fetches, which a fresh cached response would have saved.
+     */
+    public long getRepeatMs() {
+        return repeatMs;
+    }
+
+    /**
+     * @return true if the latest response had a max-age or Expires.
+     */
+    public boolean hasFreshness() {
+        return freshness;
+    }
+
+    /**
+     * @return true if the latest response had an ETag or Last-Modified.
+     */
+    public boolean hasValidators() {
+        return validators;
+    }
+
+    public Date getLastSeen() {
+        return lastSeen;
+    }
+}
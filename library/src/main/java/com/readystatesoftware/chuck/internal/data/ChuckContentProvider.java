@@ -22,17 +22,45 @@ import android.content.Context;
 import android.content.UriMatcher;
 import android.content.pm.ProviderInfo;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 public class ChuckContentProvider extends ContentProvider {
 
     public static Uri TRANSACTION_URI;
+    public static Uri HOP_URI;
+    public static Uri ENDPOINT_URI;
+    public static Uri CACHEABILITY_URI;
+    public static Uri RADIO_URI;
+    public static Uri MINUTE_ROLLUP_URI;
+    public static Uri HOUR_ROLLUP_URI;
+    /**
+     * Inserting into this Uri adds the values to the minute and hour rollups of the "host" at
+     * "time", rather than creating a row.
+     */
+    public static Uri ROLLUP_URI;
+
+    /**
+     * A {@link #call(String, String, Bundle)} method that removes all transactions at once.
+     */
+    public static final String METHOD_CLEAR = "clear";
 
     private static final int TRANSACTION = 0;
     private static final int TRANSACTIONS = 1;
+    private static final int ENDPOINTS = 2;
+    private static final int MINUTE_ROLLUPS = 3;
+    private static final int HOUR_ROLLUPS = 4;
+    private static final int ROLLUPS = 5;
+    private static final int HOPS = 6;
+    private static final int CACHEABILITY = 7;
+    private static final int RADIO_PERIODS = 8;
+    // the tables that transactions are folded into, each keyed by source
+    private static final Class<?>[] STATS_TYPES = { EndpointStats.class, CacheabilityStats.class,
+            RadioPeriod.class, MinuteRollup.class, HourRollup.class };
     private static final UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
 
     private ChuckDbOpenHelper databaseHelper;
@@ -43,20 +71,41 @@ public class ChuckContentProvider extends ContentProvider {
         TRANSACTION_URI = Uri.parse("content://" + info.authority + "/transaction");
         matcher.addURI(info.authority, "transaction/#", TRANSACTION);
         matcher.addURI(info.authority, "transaction", TRANSACTIONS);
+        HOP_URI = Uri.parse("content://" + info.authority + "/hop");
+        matcher.addURI(info.authority, "hop", HOPS);
+        ENDPOINT_URI = Uri.parse("content://" + info.authority + "/endpoint");
+        matcher.addURI(info.authority, "endpoint", ENDPOINTS);
+        CACHEABILITY_URI = Uri.parse("content://" + info.authority + "/cacheability");
+        matcher.addURI(info.authority, "cacheability", CACHEABILITY);
+        RADIO_URI = Uri.parse("content://" + info.authority + "/radio");
+        matcher.addURI(info.authority, "radio", RADIO_PERIODS);
+        MINUTE_ROLLUP_URI = Uri.parse("content://" + info.authority + "/rollup/minute");
+        matcher.addURI(info.authority, "rollup/minute", MINUTE_ROLLUPS);
+        HOUR_ROLLUP_URI = Uri.parse("content://" + info.authority + "/rollup/hour");
+        matcher.addURI(info.authority, "rollup/hour", HOUR_ROLLUPS);
+        ROLLUP_URI = Uri.parse("content://" + info.authority + "/rollup");
+        matcher.addURI(info.authority, "rollup", ROLLUPS);
     }
 
     @Override
     public boolean onCreate() {
-        databaseHelper = new ChuckDbOpenHelper(getContext());
+        // runs before Application.onCreate, so leave all database work to the first access
         return true;
     }
 
+    private synchronized SQLiteDatabase getDatabase() {
+        if (databaseHelper == null) {
+            databaseHelper = ChuckDbOpenHelper.getInstance(getContext());
+        }
+        return databaseHelper.getWritableDatabase();
+    }
+
     @Override
     @Nullable
     public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
                         @Nullable String selection, @Nullable String[] selectionArgs,
                         @Nullable String sortOrder) {
-        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        SQLiteDatabase db = getDatabase();
         Cursor cursor = null;
         switch (matcher.match(uri)) {
             case TRANSACTIONS:
@@ -71,6 +120,48 @@ public class ChuckContentProvider extends ContentProvider {
                         byId(ContentUris.parseId(uri)).
                         getCursor();
                 break;
+            case HOPS:
+                cursor = LocalCupboard.getInstance().withDatabase(db).query(NetworkHop.class).
+                        withProjection(projection).
+                        withSelection(selection, selectionArgs).
+                        orderBy(sortOrder).
+                        getCursor();
+                break;
+            case ENDPOINTS:
+                cursor = LocalCupboard.getInstance().withDatabase(db).query(EndpointStats.class).
+                        withProjection(projection).
+                        withSelection(selection, selectionArgs).
+                        orderBy(sortOrder).
+                        getCursor();
+                break;
+            case CACHEABILITY:
+                cursor = LocalCupboard.getInstance().withDatabase(db).query(CacheabilityStats.class).
+                        withProjection(projection).
+                        withSelection(selection, selectionArgs).
+                        orderBy(sortOrder).
+                        getCursor();
+                break;
+            case RADIO_PERIODS:
+                cursor = LocalCupboard.getInstance().withDatabase(db).query(RadioPeriod.class).
+                        withProjection(projection).
+                        withSelection(selection, selectionArgs).
+                        orderBy(sortOrder).
+                        getCursor();
+                break;
+            case MINUTE_ROLLUPS:
+                cursor = LocalCupboard.getInstance().withDatabase(db).query(MinuteRollup.class).
+                        withProjection(projection).
+                        withSelection(selection, selectionArgs).
+                        orderBy(sortOrder).
+                        getCursor();
+                break;
+            case HOUR_ROLLUPS:
+                cursor = LocalCupboard.getInstance().withDatabase(db).query(HourRollup.class).
+                        withProjection(projection).
+                        withSelection(selection, selectionArgs).
+                        orderBy(sortOrder).
+                        getCursor();
+                break;
         }
         if (cursor != null) {
             cursor.setNotificationUri(getContext().getContentResolver(), uri);
@@ -87,21 +178,114 @@ public class ChuckContentProvider extends ContentProvider {
     @Override
     @Nullable
     public Uri insert(@NonNull Uri uri, @Nullable ContentValues contentValues) {
-        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        SQLiteDatabase db = getDatabase();
         switch (matcher.match(uri)) {
             case TRANSACTIONS:
-                long id = db.insert(LocalCupboard.getInstance().getTable(HttpTransaction.class), null, contentValues);
+                long id;
+                db.beginTransaction();
+                try {
+                    id = db.insert(LocalCupboard.getInstance().getTable(HttpTransaction.class), null, contentValues);
+                    if (id > 0) {
+                        TransactionStats.record(db, contentValues);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
                 if (id > 0) {
                     getContext().getContentResolver().notifyChange(uri, null);
+                    notifyStatsChange(contentValues);
                     return ContentUris.withAppendedId(TRANSACTION_URI, id);
                 }
+                break;
+            case HOPS:
+                long hopId = db.insert(LocalCupboard.getInstance().getTable(NetworkHop.class), null, contentValues);
+                if (hopId > 0) {
+                    getContext().getContentResolver().notifyChange(uri, null);
+                    return ContentUris.withAppendedId(HOP_URI, hopId);
+                }
+                break;
+            case ROLLUPS:
+                addToRollups(db, contentValues);
+                break;
         }
         return null;
     }
 
+    /**
+     * Adds batches of sampled out calls to the endpoint statistics and rollups.
+     */
+    private int addSampledOut(ContentValues[] values) {
+        SQLiteDatabase db = getDatabase();
+        db.beginTransaction();
+        try {
+            for (ContentValues contentValues : values) {
+                TransactionStats.recordSampledOut(db, contentValues);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        getContext().getContentResolver().notifyChange(ENDPOINT_URI, null);
+        getContext().getContentResolver().notifyChange(MINUTE_ROLLUP_URI, null);
+        getContext().getContentResolver().notifyChange(HOUR_ROLLUP_URI, null);
+        return values.length;
+    }
+
+    private void addToRollups(SQLiteDatabase db, ContentValues contentValues) {
+        ContentValues increments = new ContentValues(contentValues);
+        increments.remove("time");
+        increments.remove("host");
+        db.beginTransaction();
+        try {
+            TrafficRollups.add(db, contentValues.getAsLong("time"), contentValues.getAsString("host"), increments);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        getContext().getContentResolver().notifyChange(MINUTE_ROLLUP_URI, null);
+        getContext().getContentResolver().notifyChange(HOUR_ROLLUP_URI, null);
+    }
+
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        if (matcher.match(uri) == ENDPOINTS) {
+            return addSampledOut(values);
+        }
+        if (matcher.match(uri) != TRANSACTIONS) {
+            return 0;
+        }
+        SQLiteDatabase db = getDatabase();
+        String table = LocalCupboard.getInstance().getTable(HttpTransaction.class);
+        int inserted = 0;
+        ContentValues complete = null;
+        db.beginTransaction();
+        try {
+            for (ContentValues contentValues : values) {
+                if (db.insert(table, null, contentValues) > 0) {
+                    inserted++;
+                    TransactionStats.record(db, contentValues);
+                    if (TransactionStats.isComplete(contentValues)) {
+                        complete = contentValues;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (inserted > 0) {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+        if (complete != null) {
+            notifyStatsChange(complete);
+        }
+        return inserted;
+    }
+
     @Override
     public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
-        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        SQLiteDatabase db = getDatabase();
         int result = 0;
         switch (matcher.match(uri)) {
             case TRANSACTIONS:
@@ -111,6 +295,24 @@ public class ChuckContentProvider extends ContentProvider {
                 result = db.delete(LocalCupboard.getInstance().getTable(HttpTransaction.class),
                         "_id = ?", new String[]{ uri.getPathSegments().get(1) });
                 break;
+            case HOPS:
+                result = db.delete(LocalCupboard.getInstance().getTable(NetworkHop.class), selection, selectionArgs);
+                break;
+            case ENDPOINTS:
+                result = db.delete(LocalCupboard.getInstance().getTable(EndpointStats.class), selection, selectionArgs);
+                break;
+            case CACHEABILITY:
+                result = db.delete(LocalCupboard.getInstance().getTable(CacheabilityStats.class), selection, selectionArgs);
+                break;
+            case RADIO_PERIODS:
+                result = db.delete(LocalCupboard.getInstance().getTable(RadioPeriod.class), selection, selectionArgs);
+                break;
+            case MINUTE_ROLLUPS:
+                result = db.delete(LocalCupboard.getInstance().getTable(MinuteRollup.class), selection, selectionArgs);
+                break;
+            case HOUR_ROLLUPS:
+                result = db.delete(LocalCupboard.getInstance().getTable(HourRollup.class), selection, selectionArgs);
+                break;
         }
         if (result > 0) {
             getContext().getContentResolver().notifyChange(uri, null);
@@ -118,18 +320,87 @@ public class ChuckContentProvider extends ContentProvider {
         return result;
     }
 
+    @Override
+    @Nullable
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (METHOD_CLEAR.equals(method)) {
+            clear();
+            return null;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Drops and recreates the transaction and hop tables, which is much faster than deleting a large
+     * history row by row. The statistics for captured traffic outlive the transactions, but those
+     * of imported files go with them.
+     */
+    private void clear() {
+        SQLiteDatabase db = getDatabase();
+        String table = LocalCupboard.getInstance().getTable(HttpTransaction.class);
+        String hopTable = LocalCupboard.getInstance().getTable(NetworkHop.class);
+        db.beginTransaction();
+        try {
+            long lastId = getSequence(db, table);
+            long lastHopId = getSequence(db, hopTable);
+            db.execSQL("DROP TABLE IF EXISTS '" + table + "'");
+            db.execSQL("DROP TABLE IF EXISTS '" + hopTable + "'");
+            LocalCupboard.getAnnotatedInstance().withDatabase(db).createTables();
+            // dropping a table resets its ids, and writes still queued for old rows would then
+            // land on new ones
+            setSequence(db, table, lastId);
+            setSequence(db, hopTable, lastHopId);
+            for (Class<?> type : STATS_TYPES) {
+                db.delete(LocalCupboard.getInstance().getTable(type), "source IS NOT NULL", null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        getContext().getContentResolver().notifyChange(TRANSACTION_URI, null);
+        notifyStatsChange(null);
+    }
+
+    private static long getSequence(SQLiteDatabase db, String table) {
+        return DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(seq), 0) FROM sqlite_sequence WHERE name = ?",
+                new String[] { table });
+    }
+
+    private static void setSequence(SQLiteDatabase db, String table, long seq) {
+        db.delete("sqlite_sequence", "name = ?", new String[] { table });
+        ContentValues values = new ContentValues();
+        values.put("name", table);
+        values.put("seq", seq);
+        db.insert("sqlite_sequence", null, values);
+    }
+
     @Override
     public int update(@NonNull Uri uri, @Nullable ContentValues contentValues,
                       @Nullable String selection, @Nullable String[] selectionArgs) {
-        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        SQLiteDatabase db = getDatabase();
         int result = 0;
         switch (matcher.match(uri)) {
             case TRANSACTIONS:
                 result = db.update(LocalCupboard.getInstance().getTable(HttpTransaction.class), contentValues, selection, selectionArgs);
                 break;
             case TRANSACTION:
-                result = db.update(LocalCupboard.getInstance().getTable(HttpTransaction.class), contentValues,
-                        "_id = ?", new String[]{ uri.getPathSegments().get(1) });
+                db.beginTransaction();
+                try {
+                    result = db.update(LocalCupboard.getInstance().getTable(HttpTransaction.class), contentValues,
+                            "_id = ?", new String[]{ uri.getPathSegments().get(1) });
+                    if (result > 0) {
+                        TransactionStats.record(db, contentValues);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                if (result > 0) {
+                    notifyStatsChange(contentValues);
+                }
+                break;
+            case ENDPOINTS:
+                result = db.update(LocalCupboard.getInstance().getTable(EndpointStats.class), contentValues, selection, selectionArgs);
                 break;
         }
         if (result > 0) {
@@ -137,4 +408,18 @@ public class ChuckContentProvider extends ContentProvider {
         }
         return result;
     }
+
+    /**
+     * Notifies the statistics URIs if the values are of a completed transaction, or always if
+     * they are null.
+     */
+    private void notifyStatsChange(ContentValues contentValues) {
+        if (contentValues == null || TransactionStats.isComplete(contentValues)) {
+            getContext().getContentResolver().notifyChange(ENDPOINT_URI, null);
+            getContext().getContentResolver().notifyChange(CACHEABILITY_URI, null);
+            getContext().getContentResolver().notifyChange(RADIO_URI, null);
+            getContext().getContentResolver().notifyChange(MINUTE_ROLLUP_URI, null);
+            getContext().getContentResolver().notifyChange(HOUR_ROLLUP_URI, null);
+        }
+    }
 }
@@ -21,11 +21,22 @@ import android.database.sqlite.SQLiteOpenHelper;
 
 class ChuckDbOpenHelper extends SQLiteOpenHelper {
 
-    private static final String DATABASE_NAME = "chuck.db";
-    private static final int VERSION = 3;
+    static final String DATABASE_NAME = "chuck.db";
+    static final int VERSION = 18;
 
-    ChuckDbOpenHelper(Context context) {
+    private static ChuckDbOpenHelper instance;
+
+    static synchronized ChuckDbOpenHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChuckDbOpenHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ChuckDbOpenHelper(Context context) {
         super(context, DATABASE_NAME, null, VERSION);
+        // lets exports read from their own connection without blocking captures
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.readystatesoftware.chuck.internal.support.ProgressListener;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Copies transactions into a standalone database file. Everything is read inside one read
+ * transaction on a separate connection, so the transactions, their network hops and the
+ * statistics in the file all come from the same moment. The database is in WAL mode, so captures
+ * written meanwhile are not blocked by the reader, and are left out of the file.
+ * <p>
+ * The traffic rollups and radio periods are copied for the same time range. The endpoint and
+ * cacheability statistics are running totals with no time range, so they are copied whole and
+ * cover all the traffic seen, including calls outside the range or since removed by retention.
+ */
+public class DatabaseExporter {
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final int BATCH_SIZE = 500;
+
+    private DatabaseExporter() {
+    }
+
+    /**
+     * @param from the earliest request date to include, in milliseconds, or 0 for no lower bound.
+     * @param to the request date to stop at (exclusive), in milliseconds, or 0 for no upper bound.
+     */
+    public static void export(Context context, File target, long from, long to,
+                              ProgressListener listener) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        temp.delete();
+        // opening the shared connection first upgrades the schema and switches to WAL
+        ChuckDbOpenHelper.getInstance(context).getWritableDatabase();
+        SQLiteDatabase source = SQLiteDatabase.openDatabase(
+                context.getDatabasePath(ChuckDbOpenHelper.DATABASE_NAME).getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            SQLiteDatabase snapshot = createSnapshot(temp);
+            try {
+                // beginTransaction() would take the write lock; a savepoint outside a transaction
+                // begins a deferred one, which only reads
+                source.execSQL("SAVEPOINT " + SNAPSHOT);
+                try {
+                    copy(source, snapshot, from, to, listener);
+                } finally {
+                    source.execSQL("RELEASE " + SNAPSHOT);
+                }
+            } finally {
+                snapshot.close();
+            }
+        } finally {
+            source.close();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Unable to write " + target);
+        }
+    }
+
+    private static void copy(SQLiteDatabase source, SQLiteDatabase snapshot, long from, long to,
+                             ProgressListener listener) {
+        String table = LocalCupboard.getInstance().getTable(HttpTransaction.class);
+        String selection = getRangeSelection("requestDate", from, to);
+        int total = (int) DatabaseUtils.queryNumEntries(source, table, selection);
+        listener.onProgress(0, total);
+        snapshot.beginTransaction();
+        try {
+            copyRows(source, snapshot, table, selection, listener, total);
+            copyRows(source, snapshot, LocalCupboard.getInstance().getTable(NetworkHop.class),
+                    "transactionId IN (SELECT _id FROM '" + table + "' WHERE " + selection + ")", null, 0);
+            copyRows(source, snapshot, MinuteRollup.class, getRangeSelection("bucket", from, to));
+            copyRows(source, snapshot, HourRollup.class, getRangeSelection("bucket", from, to));
+            copyRows(source, snapshot, RadioPeriod.class, getRangeSelection("startTime", from, to));
+            copyRows(source, snapshot, EndpointStats.class, "1");
+            copyRows(source, snapshot, CacheabilityStats.class, "1");
+            snapshot.setTransactionSuccessful();
+        } finally {
+            snapshot.endTransaction();
+        }
+    }
+
+    /**
+     * Copies the matching rows of a statistics table. These tables hold a row per endpoint, host
+     * interval or radio wake-up rather than per call, so they stay small.
+     */
+    private static void copyRows(SQLiteDatabase source, SQLiteDatabase snapshot, Class<?> type,
+                                 String selection) {
+        copyRows(source, snapshot, LocalCupboard.getInstance().getTable(type), selection, null, 0);
+    }
+
+    /**
+     * Copies the matching rows one at a time, reporting progress every {@link #BATCH_SIZE} rows
+     * if there is a listener.
+     */
+    private static void copyRows(SQLiteDatabase source, SQLiteDatabase snapshot, String table,
+                                 String selection, ProgressListener listener, int total) {
+        Cursor cursor = source.rawQuery("SELECT * FROM '" + table + "' WHERE " + selection + " ORDER BY _id", null);
+        try {
+            ContentValues values = new ContentValues();
+            int copied = 0;
+            while (cursor.moveToNext()) {
+                values.clear();
+                DatabaseUtils.cursorRowToContentValues(cursor, values);
+                snapshot.insertOrThrow(table, null, values);
+                copied++;
+                if (listener != null && copied % BATCH_SIZE == 0) {
+                    listener.onProgress(copied, total);
+                }
+            }
+            if (listener != null) {
+                listener.onProgress(copied, total);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String getRangeSelection(String column, long from, long to) {
+        return column + " >= " + from + ((to > 0) ? " AND " + column + " < " + to : "");
+    }
+
+    private static SQLiteDatabase createSnapshot(File file) {
+        SQLiteDatabase snapshot = SQLiteDatabase.openOrCreateDatabase(file, null);
+        LocalCupboard.getAnnotatedInstance().withDatabase(snapshot).createTables();
+        snapshot.setVersion(ChuckDbOpenHelper.VERSION);
+        return snapshot;
+    }
+}
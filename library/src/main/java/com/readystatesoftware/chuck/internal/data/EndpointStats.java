@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import com.readystatesoftware.chuck.internal.support.LatencyHistogram;
+
+import java.util.Date;
+
+import nl.qbusict.cupboard.annotation.Index;
+
+/**
+ * Running latency statistics for one endpoint template, kept independently of the transaction
+ * rows so that they outlive retention.
+ */
+public class EndpointStats {
+
+    private Long _id;
+    @Index private String endpoint;
+    private String method;
+    private String host;
+    private String template;
+    // the HAR file the calls were imported from, or null for captured traffic
+    private String source;
+    private long count;
+    private long errors;
+    private long totalMs;
+    private long maxMs;
+    private long cacheHits;
+    private long conditionalHits;
+    private long duplicates;
+    private long burstCalls;
+    private long sampledOut;
+    private byte[] histogram;
+    private Date lastSeen;
+
+    public EndpointStats() {
+    }
+
+    EndpointStats(String endpoint, String method, String host, String template, String source) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.host = host;
+        this.template = template;
+        this.source = source;
+    }
+
+    public static String getEndpoint(String method, String host, String template) {
+        return method + " " + host + template;
+    }
+
+    void record(long tookMs, boolean error, Date date, HttpTransaction.CacheStatus cacheStatus,
+                HttpTransaction.Redundancy redundancy) {
+        LatencyHistogram latencies = getHistogram();
+        latencies.record(tookMs);
+        histogram = latencies.toBytes();
+        count++;
+        if (error) {
+            errors++;
+        }
+        if (cacheStatus == HttpTransaction.CacheStatus.Hit) {
+            cacheHits++;
+        } else if (cacheStatus == HttpTransaction.CacheStatus.Conditional) {
+            conditionalHits++;
+        }
+        if (redundancy == HttpTransaction.Redundancy.Duplicate) {
+            duplicates++;
+        } else if (redundancy == HttpTransaction.Redundancy.Burst) {
+            burstCalls++;
+        }
+        totalMs += tookMs;
+        maxMs = Math.max(maxMs, tookMs);
+        lastSeen = date;
+    }
+
+    /**
+     * Adds calls that were sampled out and counted together rather than recorded.
+     */
+    void addSampledOut(long calls, long errors, long totalMs, long maxMs, LatencyHistogram latencies,
+                       Date lastSeen) {
+        LatencyHistogram histogram = getHistogram();
+        histogram.add(latencies);
+        this.histogram = histogram.toBytes();
+        count += calls;
+        this.errors += errors;
+        sampledOut += calls;
+        this.totalMs += totalMs;
+        this.maxMs = Math.max(this.maxMs, maxMs);
+        if (this.lastSeen == null || lastSeen.after(this.lastSeen)) {
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return LatencyHistogram.fromBytes(histogram);
+    }
+
+    public Long getId() {
+        return _id;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public float getErrorRate() {
+        return (count > 0) ? (float) errors / count : 0f;
+    }
+
+    /**
+     * @return the fraction of calls served from the cache without a request.
+     */
+    public float getCacheHitRate() {
+        return (count > 0) ? (float) cacheHits / count : 0f;
+    }
+
+    /**
+     * @return the fraction of calls answered by revalidating a cached response.
+     */
+    public float getConditionalHitRate() {
+        return (count > 0) ? (float) conditionalHits / count : 0f;
+    }
+
+    /**
+     * @return the calls that repeated an identical call made moments earlier.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the calls made in a burst to this endpoint.
+     */
+    public long getBurstCalls() {
+        return burstCalls;
+    }
+
+    /**
+     * @return the calls that were counted here but sampled out rather than recorded.
+     */
+    public long getSampledOut() {
+        return sampledOut;
+    }
+
+    public long getAverageMs() {
+        return (count > 0) ? totalMs / count : 0;
+    }
+
+    public long getMaxMs() {
+        return maxMs;
+    }
+
+    public Date getLastSeen() {
+        return lastSeen;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-hour traffic by host, used for the long range charts.
+ */
+public class HourRollup extends TrafficRollup {
+
+    public static final long INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    @Override
+    public long getInterval() {
+        return INTERVAL;
+    }
+}
@@ -20,7 +20,7 @@ public class HttpHeader {
     private final String name;
     private final String value;
 
-    HttpHeader(String name, String value) {
+    public HttpHeader(String name, String value) {
         this.name = name;
         this.value = value;
     }
@@ -20,9 +20,11 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.google.gson.reflect.TypeToken;
+import com.readystatesoftware.chuck.internal.support.BodyUtils;
 import com.readystatesoftware.chuck.internal.support.FormatUtils;
 import com.readystatesoftware.chuck.internal.support.JsonConvertor;
 
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -61,8 +63,10 @@ public class HttpTransaction implements Parcelable {
         }
         requestContentType = in.readString();
         requestHeaders = in.readString();
-        requestBody = in.readString();
+        requestBody = in.createByteArray();
+        requestBodyCharset = in.readString();
         requestBodyIsPlainText = in.readByte() != 0;
+        requestBodyIsTruncated = in.readByte() != 0;
         if (in.readByte() == 0) {
             responseCode = null;
         } else {
@@ -77,8 +81,28 @@ public class HttpTransaction implements Parcelable {
         }
         responseContentType = in.readString();
         responseHeaders = in.readString();
-        responseBody = in.readString();
+        responseBody = in.createByteArray();
+        responseBodyCharset = in.readString();
         responseBodyIsPlainText = in.readByte() != 0;
+        responseBodyIsTruncated = in.readByte() != 0;
+        source = in.readString();
+        timings = in.createByteArray();
+        connectionReused = (Boolean) in.readValue(Boolean.class.getClassLoader());
+        tlsResumed = (Boolean) in.readValue(Boolean.class.getClassLoader());
+        connectionCalls = (Integer) in.readValue(Integer.class.getClassLoader());
+        concurrentCalls = (Integer) in.readValue(Integer.class.getClassLoader());
+        connectionAgeMs = (Long) in.readValue(Long.class.getClassLoader());
+        networkHops = (Integer) in.readValue(Integer.class.getClassLoader());
+        redirects = (Integer) in.readValue(Integer.class.getClassLoader());
+        redirectMs = (Long) in.readValue(Long.class.getClassLoader());
+        requestWireBytes = (Long) in.readValue(Long.class.getClassLoader());
+        responseWireBytes = (Long) in.readValue(Long.class.getClassLoader());
+        wireContentEncoding = in.readString();
+        responseBodyHash = in.readString();
+        String cache = in.readString();
+        cacheStatus = (cache != null) ? CacheStatus.valueOf(cache) : null;
+        String redundant = in.readString();
+        redundancy = (redundant != null) ? Redundancy.valueOf(redundant) : null;
     }
 
     public static final Creator<HttpTransaction> CREATOR = new Creator<HttpTransaction>() {
@@ -126,8 +150,10 @@ public class HttpTransaction implements Parcelable {
         }
         dest.writeString(requestContentType);
         dest.writeString(requestHeaders);
-        dest.writeString(requestBody);
+        dest.writeByteArray(requestBody);
+        dest.writeString(requestBodyCharset);
         dest.writeByte((byte) (requestBodyIsPlainText ? 1 : 0));
+        dest.writeByte((byte) (requestBodyIsTruncated ? 1 : 0));
         if (responseCode == null) {
             dest.writeByte((byte) 0);
         } else {
@@ -144,8 +170,26 @@ public class HttpTransaction implements Parcelable {
         }
         dest.writeString(responseContentType);
         dest.writeString(responseHeaders);
-        dest.writeString(responseBody);
+        dest.writeByteArray(responseBody);
+        dest.writeString(responseBodyCharset);
         dest.writeByte((byte) (responseBodyIsPlainText ? 1 : 0));
+        dest.writeByte((byte) (responseBodyIsTruncated ? 1 : 0));
+        dest.writeString(source);
+        dest.writeByteArray(timings);
+        dest.writeValue(connectionReused);
+        dest.writeValue(tlsResumed);
+        dest.writeValue(connectionCalls);
+        dest.writeValue(concurrentCalls);
+        dest.writeValue(connectionAgeMs);
+        dest.writeValue(networkHops);
+        dest.writeValue(redirects);
+        dest.writeValue(redirectMs);
+        dest.writeValue(requestWireBytes);
+        dest.writeValue(responseWireBytes);
+        dest.writeString(wireContentEncoding);
+        dest.writeString(responseBodyHash);
+        dest.writeString((cacheStatus != null) ? cacheStatus.name() : null);
+        dest.writeString((redundancy != null) ? redundancy.name() : null);
     }
 
     public enum Status {
@@ -154,6 +198,28 @@ public class HttpTransaction implements Parcelable {
         Failed
     }
 
+    /**
+     * How OkHttp's response cache answered the call.
+     */
+    public enum CacheStatus {
+        // served from the cache without a request
+        Hit,
+        // the cached response was revalidated with a 304
+        Conditional,
+        // fetched from the network
+        Miss
+    }
+
+    /**
+     * Why a call looked unnecessary when it was made.
+     */
+    public enum Redundancy {
+        // the same method, URL, headers and body as a call made moments earlier
+        Duplicate,
+        // one of many calls to the same endpoint in quick succession, which a batch call could replace
+        Burst
+    }
+
     public static final String[] PARTIAL_PROJECTION = new String[] {
             "_id",
             "requestDate",
@@ -165,9 +231,14 @@ public class HttpTransaction implements Parcelable {
             "requestContentLength",
             "responseCode",
             "error",
-            "responseContentLength"
+            "responseContentLength",
+            "networkHops",
+            "redirects",
+            "cacheStatus",
+            "redundancy"
     };
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     private static final SimpleDateFormat TIME_ONLY_FMT = new SimpleDateFormat("HH:mm:ss", Locale.US);
 
     private Long _id;
@@ -185,8 +256,10 @@ public class HttpTransaction implements Parcelable {
     private Long requestContentLength;
     private String requestContentType;
     private String requestHeaders;
-    private String requestBody;
+    private byte[] requestBody;
+    private String requestBodyCharset;
     private boolean requestBodyIsPlainText = true;
+    private boolean requestBodyIsTruncated;
 
     private Integer responseCode;
     private String responseMessage;
@@ -195,8 +268,35 @@ public class HttpTransaction implements Parcelable {
     private Long responseContentLength;
     private String responseContentType;
     private String responseHeaders;
-    private String responseBody;
+    private byte[] responseBody;
+    private String responseBodyCharset;
     private boolean responseBodyIsPlainText = true;
+    private boolean responseBodyIsTruncated;
+    // a digest of the decoded body, when it was captured in full
+    private String responseBodyHash;
+
+    // where an imported transaction came from, null for captured ones
+    @Index private String source;
+    // a PhaseTimings record, when the client has a ChuckEventListener
+    private byte[] timings;
+    // body sizes as sent and received, before OkHttp removes transparent compression, and the
+    // response's Content-Encoding on the wire; set when the client has a ChuckEventListener
+    private Long requestWireBytes;
+    private Long responseWireBytes;
+    private String wireContentEncoding;
+    // requests made on the network for the call, when the network interceptor is installed
+    private Integer networkHops;
+    private Integer redirects;
+    private Long redirectMs;
+    // null for imported transactions and calls that failed before a response
+    private CacheStatus cacheStatus;
+    private Redundancy redundancy;
+    // how the call used its connection, when the client has a ChuckEventListener
+    private Boolean connectionReused;
+    private Boolean tlsResumed;
+    private Integer connectionCalls;
+    private Integer concurrentCalls;
+    private Long connectionAgeMs;
 
     public Long getId() {
         return _id;
@@ -206,6 +306,126 @@ public class HttpTransaction implements Parcelable {
         _id = id;
     }
 
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public byte[] getTimings() {
+        return timings;
+    }
+
+    public void setTimings(byte[] timings) {
+        this.timings = timings;
+    }
+
+    public void setWireSizes(Long requestWireBytes, Long responseWireBytes, String wireContentEncoding) {
+        this.requestWireBytes = requestWireBytes;
+        this.responseWireBytes = responseWireBytes;
+        this.wireContentEncoding = wireContentEncoding;
+    }
+
+    /**
+     * @return the request body size as written to the network. The decoded size is
+     * {@link #getRequestContentLength()}.
+     */
+    public Long getRequestWireBytes() {
+        return requestWireBytes;
+    }
+
+    /**
+     * @return the response body size as read from the network, before decompression. The
+     * decoded size is {@link #getResponseContentLength()} once the body has been captured.
+     */
+    public Long getResponseWireBytes() {
+        return responseWireBytes;
+    }
+
+    public String getWireContentEncoding() {
+        return wireContentEncoding;
+    }
+
+    public Redundancy getRedundancy() {
+        return redundancy;
+    }
+
+    public void setRedundancy(Redundancy redundancy) {
+        this.redundancy = redundancy;
+    }
+
+    public String getResponseBodyHash() {
+        return responseBodyHash;
+    }
+
+    public void setResponseBodyHash(String responseBodyHash) {
+        this.responseBodyHash = responseBodyHash;
+    }
+
+    public CacheStatus getCacheStatus() {
+        return cacheStatus;
+    }
+
+    public void setCacheStatus(CacheStatus cacheStatus) {
+        this.cacheStatus = cacheStatus;
+    }
+
+    public void setNetworkHops(int networkHops, int redirects, long redirectMs) {
+        this.networkHops = networkHops;
+        this.redirects = redirects;
+        this.redirectMs = redirectMs;
+    }
+
+    public Integer getNetworkHops() {
+        return networkHops;
+    }
+
+    public Integer getRedirects() {
+        return redirects;
+    }
+
+    /**
+     * @return the time spent on redirects before the final request, in milliseconds.
+     */
+    public Long getRedirectMs() {
+        return redirectMs;
+    }
+
+    public void setConnection(boolean reused, Boolean tlsResumed, int connectionCalls, int concurrentCalls,
+                              long connectionAgeMs) {
+        this.connectionReused = reused;
+        this.tlsResumed = tlsResumed;
+        this.connectionCalls = connectionCalls;
+        this.concurrentCalls = concurrentCalls;
+        this.connectionAgeMs = connectionAgeMs;
+    }
+
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    /**
+     * @return whether a new TLS connection resumed an earlier session, or null if the call
+     * did not open a TLS connection.
+     */
+    public Boolean getTlsResumed() {
+        return tlsResumed;
+    }
+
+    public Integer getConnectionCalls() {
+        return connectionCalls;
+    }
+
+    public Integer getConcurrentCalls() {
+        return concurrentCalls;
+    }
+
+    public Long getConnectionAgeMs() {
+        return connectionAgeMs;
+    }
+
     public Date getRequestDate() {
         return requestDate;
     }
@@ -247,15 +467,29 @@ public class HttpTransaction implements Parcelable {
     }
 
     public String getRequestBody() {
+        return BodyUtils.decode(requestBody, requestBodyCharset);
+    }
+
+    public byte[] getRequestBodyBytes() {
         return requestBody;
     }
 
     public String getFormattedRequestBody() {
-        return formatBody(requestBody, requestContentType);
+        return formatBody(getRequestBody(), requestContentType);
     }
 
     public void setRequestBody(String requestBody) {
+        setRequestBody((requestBody != null) ? requestBody.getBytes(UTF8) : null, UTF8, false);
+    }
+
+    public void setRequestBody(byte[] requestBody, Charset charset, boolean truncated) {
         this.requestBody = requestBody;
+        this.requestBodyCharset = charset.name();
+        this.requestBodyIsTruncated = truncated;
+    }
+
+    public boolean requestBodyIsTruncated() {
+        return requestBodyIsTruncated;
     }
 
     public boolean requestBodyIsPlainText() {
@@ -283,15 +517,29 @@ public class HttpTransaction implements Parcelable {
     }
 
     public String getResponseBody() {
+        return BodyUtils.decode(responseBody, responseBodyCharset);
+    }
+
+    public byte[] getResponseBodyBytes() {
         return responseBody;
     }
 
     public String getFormattedResponseBody() {
-        return formatBody(responseBody, responseContentType);
+        return formatBody(getResponseBody(), responseContentType);
     }
 
     public void setResponseBody(String responseBody) {
+        setResponseBody((responseBody != null) ? responseBody.getBytes(UTF8) : null, UTF8, false);
+    }
+
+    public void setResponseBody(byte[] responseBody, Charset charset, boolean truncated) {
         this.responseBody = responseBody;
+        this.responseBodyCharset = charset.name();
+        this.responseBodyIsTruncated = truncated;
+    }
+
+    public boolean responseBodyIsTruncated() {
+        return responseBodyIsTruncated;
     }
 
     public boolean responseBodyIsPlainText() {
@@ -427,10 +675,19 @@ public class HttpTransaction implements Parcelable {
     }
 
     public String getRequestSizeString() {
-        return formatBytes((requestContentLength != null) ? requestContentLength : 0);
+        return withWireSize(formatBytes((requestContentLength != null) ? requestContentLength : 0),
+                requestContentLength, requestWireBytes);
     }
     public String getResponseSizeString() {
-        return (responseContentLength != null) ? formatBytes(responseContentLength) : null;
+        return (responseContentLength != null) ?
+                withWireSize(formatBytes(responseContentLength), responseContentLength, responseWireBytes) : null;
+    }
+
+    private String withWireSize(String size, Long decodedBytes, Long wireBytes) {
+        if (wireBytes == null || wireBytes.equals(decodedBytes)) {
+            return size;
+        }
+        return size + " (" + formatBytes(wireBytes) + " on the wire)";
     }
 
     public String getTotalSizeString() {
@@ -487,6 +744,10 @@ public class HttpTransaction implements Parcelable {
         return FormatUtils.formatByteCount(bytes, true);
     }
 
+    private static String byteCount(byte[] body) {
+        return (body != null) ? body.length + " bytes" : null;
+    }
+
     @Override
     public String toString() {
         return "HttpTransaction{" +
@@ -503,16 +764,20 @@ public class HttpTransaction implements Parcelable {
                 ", requestContentLength=" + requestContentLength +
                 ", requestContentType='" + requestContentType + '\'' +
                 ", requestHeaders='" + requestHeaders + '\'' +
-                ", requestBody='" + requestBody + '\'' +
+                ", requestBody=" + byteCount(requestBody) +
+                ", requestBodyCharset='" + requestBodyCharset + '\'' +
                 ", requestBodyIsPlainText=" + requestBodyIsPlainText +
+                ", requestBodyIsTruncated=" + requestBodyIsTruncated +
                 ", responseCode=" + responseCode +
                 ", responseMessage='" + responseMessage + '\'' +
                 ", error='" + error + '\'' +
                 ", responseContentLength=" + responseContentLength +
                 ", responseContentType='" + responseContentType + '\'' +
                 ", responseHeaders='" + responseHeaders + '\'' +
-                ", responseBody='" + responseBody + '\'' +
+                ", responseBody=" + byteCount(responseBody) +
+                ", responseBodyCharset='" + responseBodyCharset + '\'' +
                 ", responseBodyIsPlainText=" + responseBodyIsPlainText +
+                ", responseBodyIsTruncated=" + responseBodyIsTruncated +
                 '}';
     }
 }
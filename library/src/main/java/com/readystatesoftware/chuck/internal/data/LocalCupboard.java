@@ -24,6 +24,12 @@ public class LocalCupboard {
 
     static {
         getInstance().register(HttpTransaction.class);
+        getInstance().register(NetworkHop.class);
+        getInstance().register(EndpointStats.class);
+        getInstance().register(CacheabilityStats.class);
+        getInstance().register(MinuteRollup.class);
+        getInstance().register(HourRollup.class);
+        getInstance().register(RadioPeriod.class);
     }
 
     public static Cupboard getInstance() {
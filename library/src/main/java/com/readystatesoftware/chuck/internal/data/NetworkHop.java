@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import java.util.Date;
+
+import nl.qbusict.cupboard.annotation.Index;
+
+/**
+ * One request that went over the network on behalf of a captured call: the first attempt,
+ * each redirect that was followed and each retry. Sizes are as sent and received on the wire,
+ * before OkHttp removes any transparent compression.
+ */
+public class NetworkHop {
+
+    private Long _id;
+    @Index private Long transactionId;
+    private int hop;
+    private Date requestDate;
+    private String method;
+    private String url;
+    private String protocol;
+    private Integer responseCode;
+    private String responseMessage;
+    private String location;
+    private String contentEncoding;
+    private String error;
+    private Long tookMs;
+    private Long requestWireBytes;
+    private Long responseWireBytes;
+
+    public NetworkHop() {
+    }
+
+    public NetworkHop(int hop, String method, String url) {
+        this.hop = hop;
+        this.method = method;
+        this.url = url;
+        requestDate = new Date();
+    }
+
+    public void setResponse(String protocol, int code, String message, String location, String contentEncoding) {
+        this.protocol = protocol;
+        this.responseCode = code;
+        this.responseMessage = message;
+        this.location = location;
+        this.contentEncoding = contentEncoding;
+    }
+
+    public boolean isRedirect() {
+        return responseCode != null && responseCode >= 300 && responseCode < 400 && location != null;
+    }
+
+    public Long getId() {
+        return _id;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    public Date getRequestDate() {
+        return requestDate;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public Integer getResponseCode() {
+        return responseCode;
+    }
+
+    public String getResponseMessage() {
+        return responseMessage;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Long getTookMs() {
+        return tookMs;
+    }
+
+    public void setTookMs(long tookMs) {
+        this.tookMs = tookMs;
+    }
+
+    public Long getRequestWireBytes() {
+        return requestWireBytes;
+    }
+
+    public void setRequestWireBytes(long requestWireBytes) {
+        this.requestWireBytes = requestWireBytes;
+    }
+
+    public Long getResponseWireBytes() {
+        return responseWireBytes;
+    }
+
+    public void setResponseWireBytes(long responseWireBytes) {
+        this.responseWireBytes = responseWireBytes;
+    }
+}
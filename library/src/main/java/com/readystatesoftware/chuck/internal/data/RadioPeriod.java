@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import nl.qbusict.cupboard.annotation.Index;
+
+/**
+ * A stretch of time in which requests kept the radio active, from the start of the first
+ * request to the end of the last. Requests that start within the radio's tail time of the
+ * previous one extend the period; any other request wakes the radio and starts a new one.
+ */
+public class RadioPeriod {
+
+    private Long _id;
+    @Index private long startTime;
+    @Index private long endTime;
+    private int calls;
+    private long bytes;
+    // the earliest request, which woke the radio
+    private String endpoint;
+    private String host;
+    // the HAR file the calls were imported from, or null for captured traffic
+    private String source;
+
+    public Long getId() {
+        return _id;
+    }
+
+    public long getStart() {
+        return startTime;
+    }
+
+    public long getEnd() {
+        return endTime;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return true if a single request woke the radio and nothing else used it before the tail ran out.
+     */
+    public boolean isIsolated() {
+        return calls == 1;
+    }
+}
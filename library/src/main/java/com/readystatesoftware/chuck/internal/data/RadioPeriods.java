@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clusters requests into radio active periods as each transaction completes.
+ */
+public class RadioPeriods {
+
+    // typical LTE tail, the time the radio stays in its high power state after the last packet
+    private static final long DEFAULT_TAIL_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private static volatile long tailMs = DEFAULT_TAIL_MS;
+
+    private RadioPeriods() {
+    }
+
+    public static void setTailMs(long ms) {
+        tailMs = ms;
+    }
+
+    public static long getTailMs() {
+        return tailMs;
+    }
+
+    /**
+     * Adds a request to the periods it overlaps, counting its tail, merging them if it bridges
+     * more than one. Requests complete out of order, so one may land before or inside a period
+     * that already exists.
+     */
+    static void record(SQLiteDatabase db, long start, long tookMs, String endpoint, String host, String source,
+                       long bytes) {
+        long end = start + Math.max(tookMs, 0);
+        long tail = tailMs;
+        String table = LocalCupboard.getInstance().getTable(RadioPeriod.class);
+        long id = -1;
+        long periodStart = start;
+        long periodEnd = end;
+        int calls = 1;
+        long totalBytes = bytes;
+        String wakingEndpoint = endpoint;
+        String wakingHost = host;
+        String[] args = (source != null) ?
+                new String[] { String.valueOf(start - tail), String.valueOf(end + tail), source } :
+                new String[] { String.valueOf(start - tail), String.valueOf(end + tail) };
+        Cursor cursor = db.query(table, new String[] { "_id", "startTime", "endTime", "calls", "bytes", "endpoint", "host" },
+                "endTime >= ? AND startTime <= ? AND " + TransactionStats.getSourceSelection(source), args,
+                null, null, "startTime ASC");
+        try {
+            while (cursor.moveToNext()) {
+                long otherStart = cursor.getLong(1);
+                if (otherStart < periodStart) {
+                    periodStart = otherStart;
+                    wakingEndpoint = cursor.getString(5);
+                    wakingHost = cursor.getString(6);
+                }
+                periodEnd = Math.max(periodEnd, cursor.getLong(2));
+                calls += cursor.getInt(3);
+                totalBytes += cursor.getLong(4);
+                if (id < 0) {
+                    id = cursor.getLong(0);
+                } else {
+                    db.delete(table, "_id = ?", new String[] { String.valueOf(cursor.getLong(0)) });
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        ContentValues values = new ContentValues();
+        values.put("startTime", periodStart);
+        values.put("endTime", periodEnd);
+        values.put("calls", calls);
+        values.put("bytes", totalBytes);
+        values.put("endpoint", wakingEndpoint);
+        values.put("host", wakingHost);
+        values.put("source", source);
+        if (id >= 0) {
+            db.update(table, values, "_id = ?", new String[] { String.valueOf(id) });
+        } else {
+            db.insert(table, null, values);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import nl.qbusict.cupboard.annotation.Index;
+
+/**
+ * Traffic totals for one host over one fixed interval. Rows are kept apart from the transactions
+ * so that charts never scan captured data and volume history outlives retention.
+ */
+public abstract class TrafficRollup {
+
+    private Long _id;
+    @Index private long bucket;
+    private String host;
+    // the HAR file the calls were imported from, or null for captured traffic
+    private String source;
+    private long count;
+    private long bytesUp;
+    private long bytesDown;
+    private long errors;
+    private long totalMs;
+    private long samples;
+    private long saturatedSamples;
+    private long queuedCalls;
+    private long queueTimeCount;
+    private long queueTimeMs;
+    private long reusedConnectionCalls;
+    private long newConnectionCalls;
+    private long tlsHandshakes;
+    private long tlsResumptions;
+
+    /**
+     * @return the length of this rollup's interval in milliseconds.
+     */
+    public abstract long getInterval();
+
+    public Long getId() {
+        return _id;
+    }
+
+    /**
+     * @return the start of the interval, in milliseconds since the epoch.
+     */
+    public long getBucket() {
+        return bucket;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getBytesUp() {
+        return bytesUp;
+    }
+
+    public long getBytesDown() {
+        return bytesDown;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    /**
+     * @return how many times the dispatcher was sampled while the host had calls in it.
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return how many of the samples found calls to the host waiting in the dispatcher queue.
+     */
+    public long getSaturatedSamples() {
+        return saturatedSamples;
+    }
+
+    /**
+     * @return the sum over all samples of the host's queued calls.
+     */
+    public long getQueuedCalls() {
+        return queuedCalls;
+    }
+
+    public long getQueueTimeCount() {
+        return queueTimeCount;
+    }
+
+    public long getQueueTimeMs() {
+        return queueTimeMs;
+    }
+
+    /**
+     * @return calls that ran on a pooled connection opened by an earlier call.
+     */
+    public long getReusedConnectionCalls() {
+        return reusedConnectionCalls;
+    }
+
+    /**
+     * @return calls that had to open a connection.
+     */
+    public long getNewConnectionCalls() {
+        return newConnectionCalls;
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes;
+    }
+
+    public long getTlsResumptions() {
+        return tlsResumptions;
+    }
+}
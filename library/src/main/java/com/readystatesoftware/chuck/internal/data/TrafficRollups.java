@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Adds to the minute and hour rollups of a host.
+ */
+class TrafficRollups {
+
+    private TrafficRollups() {
+    }
+
+    /**
+     * Adds each of the given values to the matching column of the host's rows for the minute and
+     * hour containing the given time.
+     */
+    static void add(SQLiteDatabase db, long time, String host, ContentValues increments) {
+        add(db, time, host, null, increments);
+    }
+
+    /**
+     * @param source the HAR file the calls were imported from, or null for captured traffic.
+     */
+    static void add(SQLiteDatabase db, long time, String host, String source, ContentValues increments) {
+        add(db, MinuteRollup.class, MinuteRollup.INTERVAL, time, host, source, increments);
+        add(db, HourRollup.class, HourRollup.INTERVAL, time, host, source, increments);
+    }
+
+    /**
+     * The row normally exists already and is updated in place; an insert is only needed for the
+     * first addition in each interval. Android's bundled SQLite predates ON CONFLICT DO UPDATE.
+     */
+    private static void add(SQLiteDatabase db, Class<? extends TrafficRollup> type, long interval,
+                            long time, String host, String source, ContentValues increments) {
+        String table = LocalCupboard.getInstance().getTable(type);
+        long bucket = time - (time % interval);
+        StringBuilder sql = new StringBuilder("UPDATE '").append(table).append("' SET ");
+        long[] args = new long[increments.size()];
+        int i = 0;
+        for (String column : increments.keySet()) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(column).append(" = ").append(column).append(" + ?");
+            Long value = increments.getAsLong(column);
+            args[i++] = (value != null) ? value : 0;
+        }
+        sql.append(" WHERE bucket = ? AND host = ? AND ").append(TransactionStats.getSourceSelection(source));
+        SQLiteStatement update = db.compileStatement(sql.toString());
+        try {
+            for (i = 0; i < args.length; i++) {
+                update.bindLong(i + 1, args[i]);
+            }
+            update.bindLong(args.length + 1, bucket);
+            update.bindString(args.length + 2, host);
+            if (source != null) {
+                update.bindString(args.length + 3, source);
+            }
+            if (update.executeUpdateDelete() > 0) {
+                return;
+            }
+        } finally {
+            update.close();
+        }
+        ContentValues row = new ContentValues(increments);
+        row.put("bucket", bucket);
+        row.put("host", host);
+        row.put("source", source);
+        db.insert(table, null, row);
+    }
+}
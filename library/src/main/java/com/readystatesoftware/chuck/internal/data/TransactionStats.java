@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.google.gson.reflect.TypeToken;
+import com.readystatesoftware.chuck.internal.support.EndpointTemplates;
+import com.readystatesoftware.chuck.internal.support.JsonConvertor;
+import com.readystatesoftware.chuck.internal.support.LatencyHistogram;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import nl.qbusict.cupboard.DatabaseCompartment;
+
+/**
+ * Folds completed transactions into the endpoint, cacheability, radio period and traffic rollup
+ * tables as they are written, inside the same database transaction as the row itself. Imported
+ * transactions are kept apart under their source, so that they do not skew statistics for live
+ * traffic and are removed with the imported rows.
+ */
+class TransactionStats {
+
+    private TransactionStats() {
+    }
+
+    static boolean isComplete(ContentValues values) {
+        return values != null && (values.getAsInteger("responseCode") != null || values.getAsString("error") != null);
+    }
+
+    static void record(SQLiteDatabase db, ContentValues values) {
+        if (!isComplete(values)) {
+            return;
+        }
+        String source = values.getAsString("source");
+        Long tookMs = values.getAsLong("tookMs");
+        String method = values.getAsString("method");
+        String host = values.getAsString("host");
+        if (method == null || host == null) {
+            return;
+        }
+        Integer responseCode = values.getAsInteger("responseCode");
+        boolean error = values.getAsString("error") != null || (responseCode != null && responseCode >= 400);
+        Long requestDate = values.getAsLong("requestDate");
+        Date date = new Date((requestDate != null) ? requestDate : System.currentTimeMillis());
+        long took = (tookMs != null) ? tookMs : 0;
+
+        DatabaseCompartment database = LocalCupboard.getInstance().withDatabase(db);
+        String template = EndpointTemplates.normalize(values.getAsString("path"));
+        String endpoint = EndpointStats.getEndpoint(method, host, template);
+        EndpointStats stats = database.query(EndpointStats.class)
+                .withSelection("endpoint = ? AND " + getSourceSelection(source), getSourceArgs(endpoint, source)).get();
+        if (stats == null) {
+            stats = new EndpointStats(endpoint, method, host, template, source);
+        }
+        String cacheStatus = values.getAsString("cacheStatus");
+        String redundancy = values.getAsString("redundancy");
+        stats.record(took, error, date, (cacheStatus != null) ? HttpTransaction.CacheStatus.valueOf(cacheStatus) : null,
+                (redundancy != null) ? HttpTransaction.Redundancy.valueOf(redundancy) : null);
+        database.put(stats);
+
+        if (cacheStatus == null || HttpTransaction.CacheStatus.Miss.name().equals(cacheStatus)) {
+            recordFetch(database, values, host, source, took, date);
+        }
+
+        if (!HttpTransaction.CacheStatus.Hit.name().equals(cacheStatus)) {
+            RadioPeriods.record(db, date.getTime(), took, endpoint, host, source,
+                    getLong(values, "requestContentLength") + getLong(values, "responseContentLength"));
+        }
+
+        ContentValues increments = new ContentValues();
+        increments.put("count", 1);
+        increments.put("bytesUp", getLong(values, "requestContentLength"));
+        increments.put("bytesDown", getLong(values, "responseContentLength"));
+        increments.put("errors", error ? 1 : 0);
+        increments.put("totalMs", took);
+        TrafficRollups.add(db, date.getTime(), host, source, increments);
+    }
+
+    /**
+     * Folds in the sampled out calls to one endpoint within one minute, counted together by
+     * {@link com.readystatesoftware.chuck.internal.support.CaptureSampler}. They have no
+     * transaction rows and no individual timings, so they are left out of the radio periods.
+     */
+    static void recordSampledOut(SQLiteDatabase db, ContentValues values) {
+        String method = values.getAsString("method");
+        String host = values.getAsString("host");
+        String template = values.getAsString("template");
+        DatabaseCompartment database = LocalCupboard.getInstance().withDatabase(db);
+        String endpoint = EndpointStats.getEndpoint(method, host, template);
+        EndpointStats stats = database.query(EndpointStats.class)
+                .withSelection("endpoint = ? AND " + getSourceSelection(null), endpoint).get();
+        if (stats == null) {
+            stats = new EndpointStats(endpoint, method, host, template, null);
+        }
+        stats.addSampledOut(getLong(values, "calls"), getLong(values, "errors"), getLong(values, "totalMs"),
+                getLong(values, "maxMs"), LatencyHistogram.fromBytes(values.getAsByteArray("histogram")),
+                new Date(getLong(values, "lastSeen")));
+        database.put(stats);
+
+        ContentValues increments = new ContentValues();
+        increments.put("count", getLong(values, "calls"));
+        increments.put("bytesUp", getLong(values, "bytesUp"));
+        increments.put("bytesDown", getLong(values, "bytesDown"));
+        increments.put("errors", getLong(values, "errors"));
+        increments.put("totalMs", getLong(values, "totalMs"));
+        TrafficRollups.add(db, getLong(values, "time"), host, increments);
+    }
+
+    /**
+     * Records a full GET fetch whose body was captured completely, so that fetches returning the
+     * same body as the one before can be counted.
+     */
+    private static void recordFetch(DatabaseCompartment database, ContentValues values, String host,
+                                    String source, long tookMs, Date date) {
+        String hash = values.getAsString("responseBodyHash");
+        Integer responseCode = values.getAsInteger("responseCode");
+        if (hash == null || responseCode == null || responseCode != 200 || !"GET".equals(values.getAsString("method"))) {
+            return;
+        }
+        String url = CacheabilityStats.normalizeUrl(values.getAsString("url"));
+        CacheabilityStats stats = database.query(CacheabilityStats.class)
+                .withSelection("url = ? AND " + getSourceSelection(source), getSourceArgs(url, source)).get();
+        if (stats == null) {
+            stats = new CacheabilityStats(url, host, source);
+        }
+        boolean freshness = false;
+        boolean validators = false;
+        String headers = values.getAsString("responseHeaders");
+        if (headers != null) {
+            List<HttpHeader> list = JsonConvertor.getInstance().fromJson(headers,
+                    new TypeToken<List<HttpHeader>>(){}.getType());
+            for (HttpHeader header : list) {
+                String name = header.getName();
+                if ("ETag".equalsIgnoreCase(name) || "Last-Modified".equalsIgnoreCase(name)) {
+                    validators = true;
+                } else if ("Expires".equalsIgnoreCase(name)) {
+                    freshness = true;
+                } else if ("Cache-Control".equalsIgnoreCase(name) && header.getValue() != null) {
+                    String value = header.getValue().toLowerCase(Locale.US);
+                    freshness |= value.contains("max-age") && !value.contains("max-age=0")
+                            && !value.contains("no-store") && !value.contains("no-cache");
+                }
+            }
+        }
+        long wireBytes = getLong(values, "responseWireBytes");
+        stats.record(hash, (wireBytes > 0) ? wireBytes : getLong(values, "responseContentLength"), tookMs,
+                freshness, validators, date);
+        database.put(stats);
+    }
+
+    /**
+     * @return a selection for the statistics of one source, where null is captured traffic. It
+     * takes an argument only for an imported source; SQLite cannot bind null to "=".
+     */
+    static String getSourceSelection(String source) {
+        return (source != null) ? "source = ?" : "source IS NULL";
+    }
+
+    private static String[] getSourceArgs(String key, String source) {
+        return (source != null) ? new String[] { key, source } : new String[] { key };
+    }
+
+    private static long getLong(ContentValues values, String key) {
+        Long value = values.getAsLong(key);
+        return (value != null && value > 0) ? value : 0;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
+public class BodyUtils {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private BodyUtils() {
+    }
+
+    /**
+     * Consumes at most maxBytes from the buffer. When the buffer holds more than that, the
+     * result is cut back to the last complete character in the given charset so that a
+     * truncated body always decodes cleanly.
+     */
+    public static byte[] readTruncated(Buffer buffer, long maxBytes, Charset charset) throws EOFException {
+        if (buffer.size() <= maxBytes) {
+            return buffer.readByteArray();
+        }
+        if (UTF8.equals(charset)) {
+            return buffer.readByteArray(utf8Boundary(buffer, maxBytes));
+        }
+        byte[] bytes = buffer.readByteArray(maxBytes);
+        if (isSingleByte(charset)) {
+            return bytes;
+        }
+        int end = decoderBoundary(bytes, charset);
+        return (end == bytes.length) ? bytes : Arrays.copyOf(bytes, end);
+    }
+
+    /**
+     * Decodes the start of a body without consuming it. Encoded bytes are pulled into the
+     * source's buffer only as the decoder needs them, and decoding stops once more than maxBytes
+     * have been produced, so a large body is never buffered in full.
+     *
+     * @return at most maxBytes + 1 decoded bytes, so that a size over maxBytes means the body
+     * was truncated, or null if the content encoding is not supported.
+     */
+    public static Buffer peekDecoded(BufferedSource source, String contentEncoding, long maxBytes)
+            throws IOException {
+        return peekDecoded(source, contentEncoding, maxBytes, null);
+    }
+
+    /**
+     * @param waitNs if not null, its first element is increased by the time spent waiting for
+     *               the source to deliver bytes, as opposed to decoding and copying them.
+     */
+    public static Buffer peekDecoded(BufferedSource source, String contentEncoding, long maxBytes,
+                                     long[] waitNs) throws IOException {
+        PeekSource peek = new PeekSource(source);
+        Source decoded = ContentDecoders.decode(contentEncoding, peek);
+        if (decoded == null) {
+            return null;
+        }
+        Buffer buffer = new Buffer();
+        try {
+            while (buffer.size() <= maxBytes) {
+                if (decoded.read(buffer, maxBytes + 1 - buffer.size()) == -1) {
+                    break;
+                }
+            }
+        } finally {
+            decoded.close();
+            if (waitNs != null) {
+                waitNs[0] += peek.waitNs;
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Reads a source from its buffer without consuming it, requesting more from upstream as the
+     * buffered bytes are used up. Closing it leaves the source open.
+     */
+    private static class PeekSource implements Source {
+
+        private final BufferedSource upstream;
+        private long offset;
+        private long waitNs;
+
+        PeekSource(BufferedSource upstream) {
+            this.upstream = upstream;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (upstream.buffer().size() <= offset) {
+                // only a request for bytes not yet buffered can block
+                long startNs = System.nanoTime();
+                boolean more = upstream.request(offset + 1);
+                waitNs += System.nanoTime() - startNs;
+                if (!more) {
+                    return -1;
+                }
+            }
+            long count = Math.min(byteCount, upstream.buffer().size() - offset);
+            upstream.buffer().copyTo(sink, offset, count);
+            offset += count;
+            return count;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return upstream.timeout();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Writes a body into a buffer, stopping once the buffer holds maxBytes so that a body of
+     * any size, or of unknown size, costs at most that much memory to capture.
+     *
+     * @return the buffer, holding the whole body if it is shorter than maxBytes.
+     */
+    public static Buffer writeTruncated(RequestBody body, long maxBytes) throws IOException {
+        Buffer buffer = new Buffer();
+        BufferedSink sink = Okio.buffer(new CappedSink(buffer, maxBytes));
+        try {
+            body.writeTo(sink);
+            sink.flush();
+        } catch (CapReachedException e) {
+            // the rest of the body would be discarded anyway
+        }
+        return buffer;
+    }
+
+    private static class CapReachedException extends IOException {
+    }
+
+    /**
+     * Passes writes through to a buffer until it holds the cap, then fails the write to stop
+     * the writer.
+     */
+    private static class CappedSink implements Sink {
+
+        private final Buffer buffer;
+        private final long cap;
+
+        CappedSink(Buffer buffer, long cap) {
+            this.buffer = buffer;
+            this.cap = cap;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            long kept = Math.min(byteCount, cap - buffer.size());
+            buffer.write(source, kept);
+            source.skip(byteCount - kept);
+            if (buffer.size() >= cap) {
+                throw new CapReachedException();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Decodes a captured body, falling back to UTF-8 when the charset is missing or unknown.
+     */
+    public static String decode(byte[] body, String charsetName) {
+        if (body == null) {
+            return null;
+        }
+        return new String(body, toCharset(charsetName));
+    }
+
+    /**
+     * @return a hex digest of the body, for spotting identical responses.
+     */
+    public static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    public static Charset toCharset(String charsetName) {
+        if (charsetName != null) {
+            try {
+                return Charset.forName(charsetName);
+            } catch (Exception ignored) {}
+        }
+        return UTF8;
+    }
+
+    private static long utf8Boundary(Buffer buffer, long maxBytes) {
+        // step back over continuation bytes (10xxxxxx) to the lead byte of a split sequence
+        long end = maxBytes;
+        while (end > 0 && maxBytes - end < 4 && (buffer.getByte(end) & 0xC0) == 0x80) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isSingleByte(Charset charset) {
+        try {
+            return charset.newEncoder().maxBytesPerChar() == 1f;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static int decoderBoundary(byte[] bytes, Charset charset) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        CharBuffer out = CharBuffer.allocate(1024);
+        while (in.hasRemaining()) {
+            int before = in.position();
+            out.clear();
+            decoder.decode(in, out, false);
+            if (in.position() == before && out.position() == 0) {
+                // the remaining bytes are an incomplete character
+                break;
+            }
+        }
+        return in.position();
+    }
+}
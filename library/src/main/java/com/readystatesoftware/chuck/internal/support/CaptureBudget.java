@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide limit on the body bytes held by in-flight captures and by captures waiting to be
+ * written. Captures that cannot reserve space fall back to headers only.
+ */
+public class CaptureBudget {
+
+    private static final String LOG_TAG = "Chuck";
+    private static final long DEFAULT_LIMIT = 4L * 1024 * 1024;
+    private static final long TRIM_PAUSE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final AtomicLong inFlight = new AtomicLong();
+    private static volatile long limit = DEFAULT_LIMIT;
+    private static volatile long pausedUntil;
+    private static boolean registered;
+
+    private static final ComponentCallbacks2 TRIM_CALLBACKS = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level == TRIM_MEMORY_UI_HIDDEN) {
+                return;
+            }
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                pause();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            pause();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    private CaptureBudget() {
+    }
+
+    public static synchronized void register(Context context) {
+        if (!registered) {
+            context.getApplicationContext().registerComponentCallbacks(TRIM_CALLBACKS);
+            registered = true;
+        }
+    }
+
+    public static void setLimit(long bytes) {
+        limit = bytes;
+    }
+
+    /**
+     * @return true if the bytes were reserved and must later be given back with {@link #release(long)}.
+     */
+    public static boolean tryAcquire(long bytes) {
+        if (SystemClock.uptimeMillis() < pausedUntil) {
+            return false;
+        }
+        while (true) {
+            long current = inFlight.get();
+            long next = current + bytes;
+            if (next > limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Counts bytes that are already in memory, such as captured bodies queued for writing,
+     * without checking the limit, so that they hold back new captures until they are released.
+     */
+    public static void acquire(long bytes) {
+        inFlight.addAndGet(bytes);
+    }
+
+    public static void release(long bytes) {
+        inFlight.addAndGet(-bytes);
+    }
+
+    private static void pause() {
+        Log.i(LOG_TAG, "Memory is low, pausing body capture");
+        pausedUntil = SystemClock.uptimeMillis() + TRIM_PAUSE_MS;
+        NotificationHelper.trimBuffer();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.readystatesoftware.chuck.CaptureLevel;
+import com.readystatesoftware.chuck.Chuck;
+
+import java.util.Locale;
+
+/**
+ * Changes the capture level from the command line, for example:
+ * <pre>
+ * adb shell am broadcast -a com.readystatesoftware.chuck.SET_CAPTURE_LEVEL --es level none -p your.package
+ * </pre>
+ * The sender must hold the DUMP permission, which the adb shell has.
+ */
+public class CaptureLevelReceiver extends BroadcastReceiver {
+
+    public static final String ACTION_SET_CAPTURE_LEVEL = "com.readystatesoftware.chuck.SET_CAPTURE_LEVEL";
+    public static final String EXTRA_LEVEL = "level";
+
+    private static final String LOG_TAG = "Chuck";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String value = intent.getStringExtra(EXTRA_LEVEL);
+        if (value == null) {
+            Log.w(LOG_TAG, "Missing " + EXTRA_LEVEL + " extra, capture level is " + Chuck.getCaptureLevel());
+            return;
+        }
+        try {
+            Chuck.setCaptureLevel(CaptureLevel.valueOf(value.trim().toUpperCase(Locale.US)));
+            Log.i(LOG_TAG, "Capture level set to " + Chuck.getCaptureLevel());
+        } catch (IllegalArgumentException e) {
+            Log.w(LOG_TAG, "Unknown capture level " + value);
+        }
+    }
+}
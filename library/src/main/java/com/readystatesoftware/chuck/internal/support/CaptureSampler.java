@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.ContentValues;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class CaptureSampler {
+
+    public enum Decision {
+        CAPTURE,
+        CAPTURE_WITHOUT_BODY,
+        SAMPLE_OUT
+    }
+
+    /**
+     * How long sampled out calls are counted in memory before they are stored together.
+     */
+    public static final long FLUSH_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_ENDPOINTS = 1000;
+    private static final long WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final float MIN_BODY_RATE = 1f / 64;
+    private static final float BODY_RATE_RECOVERY = 0.05f;
+
+    private final int everyNth;
+    private final int maxCapturesPerSecond;
+    private final int maxOverheadPercent;
+    private final long slowThresholdMs;
+    private final ConcurrentHashMap<String, EndpointCounter> counters = new ConcurrentHashMap<>();
+    // sampled out calls not yet stored, by endpoint and minute; guarded by this
+    private Map<String, SampledOutCounts> sampledOut = new HashMap<>();
+
+    private float bodyRate = 1f;
+    private float bodyCredit;
+    private long windowStartNs = System.nanoTime();
+    private int windowCaptures;
+    private long windowOverheadNs;
+
+    public CaptureSampler(int everyNth, int maxCapturesPerSecond, int maxOverheadPercent, long slowThresholdMs) {
+        this.everyNth = everyNth;
+        this.maxCapturesPerSecond = maxCapturesPerSecond;
+        this.maxOverheadPercent = maxOverheadPercent;
+        this.slowThresholdMs = slowThresholdMs;
+    }
+
+    public static String endpointKey(Request request) {
+        // ids in the path would otherwise give every resource its own counter
+        return request.method() + " " + request.url().host()
+                + EndpointTemplates.normalize(request.url().encodedPath());
+    }
+
+    public Decision sample(String endpoint) {
+        long seen = counterFor(endpoint).seen.incrementAndGet();
+        if (everyNth > 1 && (seen - 1) % everyNth != 0) {
+            return Decision.SAMPLE_OUT;
+        }
+        if (isAdaptive() && !takeBodyCredit()) {
+            return Decision.CAPTURE_WITHOUT_BODY;
+        }
+        return Decision.CAPTURE;
+    }
+
+    /**
+     * @return true if a sampled out request should be recorded anyway.
+     */
+    public boolean isFailedOrSlow(int responseCode, long tookMs) {
+        return responseCode >= 400 || tookMs >= slowThresholdMs;
+    }
+
+    /**
+     * Counts a sampled out call in memory.
+     *
+     * @return true if no other sampled out calls are waiting to be stored, in which case the
+     * caller should store them with {@link #takeSampledOut()} after {@link #FLUSH_DELAY_MS}.
+     */
+    public boolean recordSampledOut(Request request, Response response, long requestTime, long tookMs) {
+        NotificationHelper.recordSampledOut();
+        String method = request.method();
+        String host = request.url().host();
+        String template = EndpointTemplates.normalize(request.url().encodedPath());
+        long minute = requestTime - (requestTime % MINUTE_MS);
+        String key = method + " " + host + template + " " + minute;
+        long bytesUp = (request.body() != null) ? request.body().contentLength() : 0;
+        long bytesDown = (response.body() != null) ? response.body().contentLength() : 0;
+        synchronized (this) {
+            boolean first = sampledOut.isEmpty();
+            SampledOutCounts counts = sampledOut.get(key);
+            if (counts == null) {
+                counts = new SampledOutCounts(method, host, template, minute);
+                sampledOut.put(key, counts);
+            }
+            counts.add(requestTime, tookMs, response.code() >= 400, Math.max(0, bytesUp), Math.max(0, bytesDown));
+            return first;
+        }
+    }
+
+    /**
+     * @return the sampled out calls counted since the last call, as values for the endpoint URI.
+     */
+    public List<ContentValues> takeSampledOut() {
+        Map<String, SampledOutCounts> taken;
+        synchronized (this) {
+            taken = sampledOut;
+            sampledOut = new HashMap<>();
+        }
+        List<ContentValues> values = new ArrayList<>(taken.size());
+        for (SampledOutCounts counts : taken.values()) {
+            values.add(counts.toContentValues());
+        }
+        return values;
+    }
+
+    /**
+     * @param overheadNs time spent on capture work for a single request, excluding the call itself.
+     */
+    public void recordCapture(long overheadNs) {
+        if (!isAdaptive()) {
+            return;
+        }
+        synchronized (this) {
+            windowCaptures++;
+            windowOverheadNs += overheadNs;
+            long now = System.nanoTime();
+            long elapsed = now - windowStartNs;
+            if (elapsed >= WINDOW_NS) {
+                adjustBodyRate(windowCaptures * 1e9f / elapsed, windowOverheadNs * 100f / elapsed);
+                windowStartNs = now;
+                windowCaptures = 0;
+                windowOverheadNs = 0;
+            }
+        }
+    }
+
+    private boolean isAdaptive() {
+        return maxCapturesPerSecond > 0 || maxOverheadPercent > 0;
+    }
+
+    private synchronized boolean takeBodyCredit() {
+        bodyCredit += bodyRate;
+        if (bodyCredit >= 1f) {
+            bodyCredit -= 1f;
+            return true;
+        }
+        return false;
+    }
+
+    private void adjustBodyRate(float capturesPerSecond, float overheadPercent) {
+        boolean overTarget = (maxCapturesPerSecond > 0 && capturesPerSecond > maxCapturesPerSecond) ||
+                (maxOverheadPercent > 0 && overheadPercent > maxOverheadPercent);
+        if (overTarget) {
+            bodyRate = Math.max(MIN_BODY_RATE, bodyRate / 2);
+        } else {
+            bodyRate = Math.min(1f, bodyRate + BODY_RATE_RECOVERY);
+        }
+    }
+
+    private EndpointCounter counterFor(String endpoint) {
+        EndpointCounter counter = counters.get(endpoint);
+        if (counter == null) {
+            if (counters.size() >= MAX_ENDPOINTS) {
+                // too many distinct paths (likely ids), count against the host instead
+                endpoint = endpoint.substring(0, endpoint.indexOf('/', endpoint.indexOf(' ')) + 1) + "*";
+                counter = counters.get(endpoint);
+            }
+            if (counter == null) {
+                counter = new EndpointCounter();
+                EndpointCounter existing = counters.putIfAbsent(endpoint, counter);
+                if (existing != null) {
+                    counter = existing;
+                }
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * The sampled out calls to one endpoint within one minute.
+     */
+    private static class SampledOutCounts {
+        final String method;
+        final String host;
+        final String template;
+        final long minute;
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long calls;
+        long errors;
+        long totalMs;
+        long maxMs;
+        long bytesUp;
+        long bytesDown;
+        long lastSeen;
+
+        SampledOutCounts(String method, String host, String template, long minute) {
+            this.method = method;
+            this.host = host;
+            this.template = template;
+            this.minute = minute;
+        }
+
+        void add(long time, long tookMs, boolean error, long up, long down) {
+            latencies.record(tookMs);
+            calls++;
+            if (error) {
+                errors++;
+            }
+            totalMs += tookMs;
+            maxMs = Math.max(maxMs, tookMs);
+            bytesUp += up;
+            bytesDown += down;
+            lastSeen = Math.max(lastSeen, time);
+        }
+
+        ContentValues toContentValues() {
+            ContentValues values = new ContentValues();
+            values.put("method", method);
+            values.put("host", host);
+            values.put("template", template);
+            values.put("time", minute);
+            values.put("lastSeen", lastSeen);
+            values.put("calls", calls);
+            values.put("errors", errors);
+            values.put("totalMs", totalMs);
+            values.put("maxMs", maxMs);
+            values.put("bytesUp", bytesUp);
+            values.put("bytesDown", bytesDown);
+            values.put("histogram", latencies.toBytes());
+            return values;
+        }
+    }
+
+    private static class EndpointCounter {
+        final AtomicLong seen = new AtomicLong();
+    }
+}
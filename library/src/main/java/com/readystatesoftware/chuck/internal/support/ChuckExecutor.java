@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single background thread for database writes, so that tasks run in the order they were
+ * submitted and never on the thread making the HTTP call. The thread is only started by the first
+ * task.
+ */
+public class ChuckExecutor {
+
+    private static final String LOG_TAG = "Chuck";
+
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Chuck writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private ChuckExecutor() {
+    }
+
+    public static void write(Runnable task) {
+        WRITER.execute(wrap(task));
+    }
+
+    /**
+     * Runs the task on the writer thread once the delay has passed, behind any tasks submitted
+     * by then.
+     */
+    public static void writeLater(Runnable task, long delayMs) {
+        WRITER.schedule(wrap(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // a failed write must not take the writer thread down with it
+                    Log.w(LOG_TAG, "Failed to write transaction", e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.v4.content.FileProvider;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares exported files by content URI. A subclass so that it does not clash with a
+ * FileProvider declared by the host app.
+ */
+public class ChuckFileProvider extends FileProvider {
+
+    private static final String SHARE_DIR = "chuck";
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * @return the cache directory for files to share, which is created if needed. Files shared
+     * more than a day ago are removed.
+     */
+    public static File getShareDir(Context context) {
+        File dir = new File(context.getCacheDir(), SHARE_DIR);
+        if (!dir.mkdirs()) {
+            File[] files = dir.listFiles();
+            long threshold = System.currentTimeMillis() - MAX_AGE_MS;
+            for (int i = 0, count = (files != null) ? files.length : 0; i < count; i++) {
+                if (files[i].lastModified() < threshold) {
+                    files[i].delete();
+                }
+            }
+        }
+        return dir;
+    }
+
+    public static Uri getUri(Context context, File file) {
+        return getUriForFile(context, context.getPackageName() + ".chuck.fileprovider", file);
+    }
+}
@@ -1,22 +1,75 @@
 package com.readystatesoftware.chuck.internal.support;
 
 import android.app.IntentService;
+import android.content.Context;
 import android.content.Intent;
+import android.net.Uri;
 import android.support.annotation.Nullable;
+import android.support.v4.content.LocalBroadcastManager;
 
 import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes all transactions on a background thread. A local broadcast of
+ * {@link #ACTION_CLEAR_FINISHED} is sent once no more clear requests are pending.
+ */
 public class ClearTransactionsService extends IntentService {
 
+    public static final String ACTION_CLEAR_FINISHED = "com.readystatesoftware.chuck.CLEAR_FINISHED";
+    private static final String EXTRA_IMPORTED_ONLY = "imported_only";
+
+    private static final AtomicInteger pending = new AtomicInteger();
+
     public ClearTransactionsService() {
         super("Chuck-ClearTransactionsService");
     }
 
+    public static void start(Context context) {
+        context.startService(new Intent(context, ClearTransactionsService.class));
+    }
+
+    /**
+     * Removes the transactions loaded from HAR files and leaves captured ones in place.
+     */
+    public static void startClearImported(Context context) {
+        context.startService(new Intent(context, ClearTransactionsService.class)
+                .putExtra(EXTRA_IMPORTED_ONLY, true));
+    }
+
+    public static boolean isRunning() {
+        return pending.get() > 0;
+    }
+
+    @Override
+    public int onStartCommand(@Nullable Intent intent, int flags, int startId) {
+        pending.incrementAndGet();
+        return super.onStartCommand(intent, flags, startId);
+    }
+
     @Override
     protected void onHandleIntent(@Nullable Intent intent) {
-        getContentResolver().delete(ChuckContentProvider.TRANSACTION_URI, null, null);
-        NotificationHelper.clearBuffer();
-        NotificationHelper notificationHelper = new NotificationHelper(this);
-        notificationHelper.dismiss();
+        try {
+            if (intent != null && intent.getBooleanExtra(EXTRA_IMPORTED_ONLY, false)) {
+                getContentResolver().delete(ChuckContentProvider.TRANSACTION_URI, "source IS NOT NULL", null);
+                Uri[] stats = { ChuckContentProvider.ENDPOINT_URI, ChuckContentProvider.CACHEABILITY_URI,
+                        ChuckContentProvider.RADIO_URI, ChuckContentProvider.MINUTE_ROLLUP_URI,
+                        ChuckContentProvider.HOUR_ROLLUP_URI };
+                for (Uri uri : stats) {
+                    getContentResolver().delete(uri, "source IS NOT NULL", null);
+                }
+                return;
+            }
+            getContentResolver().call(ChuckContentProvider.TRANSACTION_URI, ChuckContentProvider.METHOD_CLEAR,
+                    null, null);
+            NotificationHelper.clearBuffer();
+            NotificationHelper notificationHelper = new NotificationHelper(this);
+            notificationHelper.dismiss();
+        } finally {
+            if (pending.decrementAndGet() == 0) {
+                LocalBroadcastManager.getInstance(this).sendBroadcast(new Intent(ACTION_CLEAR_FINISHED));
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finds endpoints that send text responses without a Content-Encoding and estimates what gzip
+ * would save them. Only transactions with on-wire sizes, recorded by ChuckEventListener, are
+ * considered, since OkHttp hides transparent compression from the interceptor.
+ */
+public class CompressionAnalyzer {
+
+    private static final long MIN_WIRE_BYTES = 1024;
+    private static final int MIN_SAMPLE_BYTES = 256;
+    // typical gzip ratio for JSON and markup, used when no body was captured for an endpoint
+    private static final float DEFAULT_RATIO = 0.3f;
+
+    private static final String[] PROJECTION = new String[] {
+            "_id",
+            "method",
+            "host",
+            "path",
+            "responseContentType",
+            "responseContentLength",
+            "responseWireBytes",
+            "wireContentEncoding"
+    };
+
+    private CompressionAnalyzer() {
+    }
+
+    /**
+     * Uncompressed text served by one endpoint template.
+     */
+    public static class Finding {
+        public final String method;
+        public final String template;
+        public final String host;
+        public String contentType;
+        public int calls;
+        public long wireBytes;
+        public long savedBytes;
+        // false when savedBytes is based on DEFAULT_RATIO rather than a captured body
+        public boolean measured;
+        long sampleId = -1;
+        long sampleBytes;
+
+        Finding(String method, String template, String host) {
+            this.method = method;
+            this.template = template;
+            this.host = host;
+        }
+    }
+
+    public static class Result {
+        public final List<Finding> findings;
+        // totals over every response with a known on-wire size
+        public final int analysedCalls;
+        public final long analysedWireBytes;
+        public final long savedBytes;
+
+        Result(List<Finding> findings, int analysedCalls, long analysedWireBytes, long savedBytes) {
+            this.findings = findings;
+            this.analysedCalls = analysedCalls;
+            this.analysedWireBytes = analysedWireBytes;
+            this.savedBytes = savedBytes;
+        }
+    }
+
+    /**
+     * Scans the captured transactions, without their bodies, and then gzips one captured body
+     * per flagged endpoint. Runs on a background thread.
+     */
+    public static Result analyse(Context context) {
+        Map<String, Finding> findings = new LinkedHashMap<>();
+        int analysedCalls = 0;
+        long analysedWireBytes = 0;
+        Cursor cursor = context.getContentResolver().query(ChuckContentProvider.TRANSACTION_URI, PROJECTION,
+                "responseWireBytes IS NOT NULL AND source IS NULL", null, null);
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    HttpTransaction transaction = LocalCupboard.getInstance().withCursor(cursor).get(HttpTransaction.class);
+                    long wireBytes = transaction.getResponseWireBytes();
+                    analysedCalls++;
+                    analysedWireBytes += wireBytes;
+                    if (wireBytes < MIN_WIRE_BYTES || !isIdentity(transaction.getWireContentEncoding())
+                            || !isText(transaction.getResponseContentType())) {
+                        continue;
+                    }
+                    String template = EndpointTemplates.normalize(transaction.getPath());
+                    String key = transaction.getMethod() + " " + transaction.getHost() + template;
+                    Finding finding = findings.get(key);
+                    if (finding == null) {
+                        finding = new Finding(transaction.getMethod(), template, transaction.getHost());
+                        findings.put(key, finding);
+                    }
+                    finding.calls++;
+                    finding.wireBytes += wireBytes;
+                    finding.contentType = transaction.getResponseContentType();
+                    Long decodedBytes = transaction.getResponseContentLength();
+                    // the largest complete body is the most representative sample
+                    if (decodedBytes != null && decodedBytes == wireBytes && wireBytes > finding.sampleBytes) {
+                        finding.sampleId = transaction.getId();
+                        finding.sampleBytes = wireBytes;
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        List<Finding> results = new ArrayList<>(findings.values());
+        long savedBytes = 0;
+        for (Finding finding : results) {
+            float ratio = DEFAULT_RATIO;
+            if (finding.sampleId >= 0) {
+                float sampleRatio = sampleRatio(context, finding.sampleId);
+                if (sampleRatio >= 0) {
+                    ratio = sampleRatio;
+                    finding.measured = true;
+                }
+            }
+            finding.savedBytes = (long) (finding.wireBytes * (1 - ratio));
+            savedBytes += finding.savedBytes;
+        }
+        Collections.sort(results, new Comparator<Finding>() {
+            @Override
+            public int compare(Finding a, Finding b) {
+                return (a.savedBytes < b.savedBytes) ? 1 : ((a.savedBytes == b.savedBytes) ? 0 : -1);
+            }
+        });
+        return new Result(results, analysedCalls, analysedWireBytes, savedBytes);
+    }
+
+    /**
+     * @return the gzipped size of the transaction's response body as a fraction of its size,
+     * or -1 if no usable body was captured.
+     */
+    private static float sampleRatio(Context context, long id) {
+        Cursor cursor = context.getContentResolver().query(
+                ContentUris.withAppendedId(ChuckContentProvider.TRANSACTION_URI, id), null, null, null, null);
+        if (cursor == null) {
+            return -1;
+        }
+        byte[] body = null;
+        try {
+            if (cursor.moveToFirst()) {
+                HttpTransaction transaction = LocalCupboard.getInstance().withCursor(cursor).get(HttpTransaction.class);
+                if (!transaction.responseBodyIsTruncated()) {
+                    body = transaction.getResponseBodyBytes();
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        if (body == null || body.length < MIN_SAMPLE_BYTES) {
+            return -1;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(body);
+            gzip.close();
+            return Math.min(1f, out.size() / (float) body.length);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isIdentity(String contentEncoding) {
+        return contentEncoding == null || contentEncoding.trim().isEmpty()
+                || "identity".equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    static boolean isText(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.US);
+        return type.startsWith("text/") || type.contains("json") || type.contains("xml")
+                || type.contains("javascript") || type.contains("ecmascript")
+                || type.contains("x-www-form-urlencoded") || type.contains("graphql");
+    }
+}
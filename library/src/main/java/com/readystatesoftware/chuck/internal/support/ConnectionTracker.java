@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.os.SystemClock;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import okhttp3.Connection;
+
+/**
+ * Follows each pooled connection from the first call that acquires it, counting the calls it
+ * has carried and how many use it at once, which for HTTP/2 is the stream concurrency.
+ * Connections are held weakly so that evicted ones disappear with the pool.
+ */
+public class ConnectionTracker {
+
+    private static final Map<Connection, State> connections = new WeakHashMap<>();
+
+    private static final class State {
+        final long createdMs = SystemClock.elapsedRealtime();
+        int calls;
+        int active;
+    }
+
+    /**
+     * What a call found when it acquired a connection.
+     */
+    public static final class Usage {
+        /** 1 for the call that opened the connection, 2 for the first reuse, and so on. */
+        public final int callNumber;
+        /** Calls using the connection at the same time, including this one. */
+        public final int concurrentCalls;
+        /** How long the connection had been open. */
+        public final long ageMs;
+
+        Usage(int callNumber, int concurrentCalls, long ageMs) {
+            this.callNumber = callNumber;
+            this.concurrentCalls = concurrentCalls;
+            this.ageMs = ageMs;
+        }
+    }
+
+    private ConnectionTracker() {
+    }
+
+    public static synchronized Usage acquire(Connection connection) {
+        State state = connections.get(connection);
+        if (state == null) {
+            state = new State();
+            connections.put(connection, state);
+        }
+        state.calls++;
+        state.active++;
+        return new Usage(state.calls, state.active, SystemClock.elapsedRealtime() - state.createdMs);
+    }
+
+    public static synchronized void release(Connection connection) {
+        State state = connections.get(connection);
+        if (state != null && state.active > 0) {
+            state.active--;
+        }
+    }
+}
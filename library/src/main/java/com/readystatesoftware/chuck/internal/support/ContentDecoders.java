@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import com.readystatesoftware.chuck.ContentDecoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Inflater;
+
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Stream decoders keyed by content coding.
+ */
+public class ContentDecoders {
+
+    private static final Map<String, ContentDecoder> decoders = new ConcurrentHashMap<>();
+
+    static {
+        decoders.put("gzip", new ContentDecoder() {
+            @Override
+            public Source decode(Source encoded) {
+                return new GzipSource(encoded);
+            }
+        });
+        decoders.put("x-gzip", decoders.get("gzip"));
+        decoders.put("deflate", new ContentDecoder() {
+            @Override
+            public Source decode(Source encoded) throws IOException {
+                // deflate should be zlib wrapped, but some servers send a raw deflate stream
+                BufferedSource source = Okio.buffer(encoded);
+                boolean zlib = source.request(2) && isZlibHeader(source.buffer().getByte(0), source.buffer().getByte(1));
+                return new InflaterSource(source, new Inflater(!zlib));
+            }
+        });
+        ContentDecoder brotli = brotliDecoder();
+        if (brotli != null) {
+            decoders.put("br", brotli);
+        }
+    }
+
+    private ContentDecoders() {
+    }
+
+    public static void register(String coding, ContentDecoder decoder) {
+        String key = coding.trim().toLowerCase(Locale.US);
+        if (decoder != null) {
+            decoders.put(key, decoder);
+        } else {
+            decoders.remove(key);
+        }
+    }
+
+    /**
+     * @return true if every coding in the Content-Encoding header has a decoder.
+     */
+    public static boolean isSupported(String contentEncoding) {
+        if (contentEncoding == null) {
+            return true;
+        }
+        for (String coding : contentEncoding.split(",")) {
+            if (!isIdentity(coding) && !decoders.containsKey(coding.trim().toLowerCase(Locale.US))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps the source in a decoder for each coding in the Content-Encoding header, undoing them
+     * in the reverse of the order they were applied.
+     *
+     * @return the decoded source, or null if a coding is not supported.
+     */
+    public static Source decode(String contentEncoding, Source source) throws IOException {
+        if (contentEncoding == null) {
+            return source;
+        }
+        String[] codings = contentEncoding.split(",");
+        for (int i = codings.length - 1; i >= 0; i--) {
+            if (isIdentity(codings[i])) {
+                continue;
+            }
+            ContentDecoder decoder = decoders.get(codings[i].trim().toLowerCase(Locale.US));
+            if (decoder == null) {
+                return null;
+            }
+            source = decoder.decode(source);
+        }
+        return source;
+    }
+
+    private static boolean isIdentity(String coding) {
+        String trimmed = coding.trim();
+        return trimmed.isEmpty() || "identity".equalsIgnoreCase(trimmed);
+    }
+
+    private static boolean isZlibHeader(byte cmf, byte flg) {
+        return (cmf & 0x0F) == 8 && (((cmf & 0xFF) << 8) | (flg & 0xFF)) % 31 == 0;
+    }
+
+    /**
+     * Android has no brotli decoder of its own, so one is only available when the app already
+     * depends on org.brotli:dec.
+     */
+    private static ContentDecoder brotliDecoder() {
+        final Constructor<?> constructor;
+        try {
+            constructor = Class.forName("org.brotli.dec.BrotliInputStream").getConstructor(InputStream.class);
+        } catch (Exception e) {
+            return null;
+        }
+        return new ContentDecoder() {
+            @Override
+            public Source decode(Source encoded) throws IOException {
+                try {
+                    return Okio.source((InputStream) constructor.newInstance(Okio.buffer(encoded).inputStream()));
+                } catch (Exception e) {
+                    throw new IOException("Unable to create brotli decoder", e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.MinuteRollup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.Dispatcher;
+
+/**
+ * Samples a dispatcher's running and queued calls per host while it has work, and collects how
+ * long calls waited to be run. Both are added to the traffic rollups once a minute, which is
+ * what lets the Traffic screen point out hosts whose calls keep waiting behind
+ * {@link Dispatcher#getMaxRequestsPerHost()}.
+ */
+public class DispatcherMonitor {
+
+    private static final long SAMPLE_INTERVAL_MS = 500;
+
+    private static final int SAMPLES = 0;
+    private static final int SATURATED_SAMPLES = 1;
+    private static final int QUEUED_CALLS = 2;
+    private static final int QUEUE_TIME_COUNT = 3;
+    private static final int QUEUE_TIME_MS = 4;
+    private static final String[] COLUMNS = {
+            "samples", "saturatedSamples", "queuedCalls", "queueTimeCount", "queueTimeMs"
+    };
+
+    private static Handler handler;
+
+    private final Context context;
+    private final Dispatcher dispatcher;
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    // only touched on the monitor thread
+    private final Map<String, long[]> totals = new HashMap<>();
+    private long minute = -1;
+
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            if (!isIdle()) {
+                getHandler().postDelayed(this, SAMPLE_INTERVAL_MS);
+                return;
+            }
+            flush();
+            sampling.set(false);
+            // a call may have arrived between the check and giving up the flag
+            if (!isIdle()) {
+                wake();
+            }
+        }
+    };
+
+    public DispatcherMonitor(Context context, Dispatcher dispatcher) {
+        this.context = context.getApplicationContext();
+        this.dispatcher = dispatcher;
+    }
+
+    private static synchronized Handler getHandler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("Chuck dispatcher monitor", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * Starts sampling unless it is already running. Sampling stops by itself once the
+     * dispatcher is idle, so this is called for every captured call.
+     */
+    public void wake() {
+        if (sampling.compareAndSet(false, true)) {
+            getHandler().post(sampler);
+        }
+    }
+
+    /**
+     * Records how long a call to the host waited between being started and being run.
+     */
+    public void recordQueueTime(final String host, final long queueUs) {
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                long[] hostTotals = getTotals(host);
+                hostTotals[QUEUE_TIME_COUNT]++;
+                hostTotals[QUEUE_TIME_MS] += TimeUnit.MICROSECONDS.toMillis(queueUs);
+            }
+        });
+    }
+
+    private boolean isIdle() {
+        return dispatcher.runningCallsCount() == 0 && dispatcher.queuedCallsCount() == 0;
+    }
+
+    private void sample() {
+        Map<String, int[]> counts = new HashMap<>();
+        count(counts, dispatcher.runningCalls(), 0);
+        count(counts, dispatcher.queuedCalls(), 1);
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            long[] hostTotals = getTotals(entry.getKey());
+            int queued = entry.getValue()[1];
+            hostTotals[SAMPLES]++;
+            if (queued > 0) {
+                hostTotals[SATURATED_SAMPLES]++;
+                hostTotals[QUEUED_CALLS] += queued;
+            }
+        }
+    }
+
+    private static void count(Map<String, int[]> counts, List<Call> calls, int index) {
+        for (Call call : calls) {
+            String host = call.request().url().host();
+            int[] hostCounts = counts.get(host);
+            if (hostCounts == null) {
+                hostCounts = new int[2];
+                counts.put(host, hostCounts);
+            }
+            hostCounts[index]++;
+        }
+    }
+
+    private long[] getTotals(String host) {
+        long now = System.currentTimeMillis();
+        long currentMinute = now - (now % MinuteRollup.INTERVAL);
+        if (currentMinute != minute) {
+            flush();
+            minute = currentMinute;
+        }
+        long[] hostTotals = totals.get(host);
+        if (hostTotals == null) {
+            hostTotals = new long[COLUMNS.length];
+            totals.put(host, hostTotals);
+        }
+        return hostTotals;
+    }
+
+    private void flush() {
+        if (totals.isEmpty()) {
+            return;
+        }
+        final List<ContentValues> rows = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            ContentValues values = new ContentValues();
+            values.put("time", minute);
+            values.put("host", entry.getKey());
+            for (int i = 0; i < COLUMNS.length; i++) {
+                values.put(COLUMNS[i], entry.getValue()[i]);
+            }
+            rows.add(values);
+        }
+        totals.clear();
+        ChuckExecutor.write(new Runnable() {
+            @Override
+            public void run() {
+                for (ContentValues values : rows) {
+                    context.getContentResolver().insert(ChuckContentProvider.ROLLUP_URI, values);
+                }
+            }
+        });
+    }
+}
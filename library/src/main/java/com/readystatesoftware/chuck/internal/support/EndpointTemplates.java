@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+/**
+ * Turns request paths into endpoint templates by replacing identifier-like segments, so that
+ * {@code /users/123/orders/3f2a...} becomes {@code /users/{id}/orders/{hash}}. Segments are
+ * classified with a single pass over their characters.
+ */
+public class EndpointTemplates {
+
+    private static final String ID = "{id}";
+    private static final String UUID = "{uuid}";
+    private static final String HASH = "{hash}";
+    private static final int MIN_HASH_LENGTH = 16;
+
+    private EndpointTemplates() {
+    }
+
+    /**
+     * @param path the request path, optionally followed by a query string, which is dropped.
+     */
+    public static String normalize(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        int end = path.indexOf('?');
+        if (end < 0) {
+            end = path.length();
+        }
+        StringBuilder template = null;
+        int start = 0;
+        while (start < end) {
+            int slash = path.indexOf('/', start);
+            int segmentEnd = (slash < 0 || slash > end) ? end : slash;
+            String replacement = classify(path, start, segmentEnd);
+            if (replacement != null && template == null) {
+                template = new StringBuilder(end).append(path, 0, start);
+            }
+            if (template != null) {
+                if (replacement != null) {
+                    template.append(replacement);
+                } else {
+                    template.append(path, start, segmentEnd);
+                }
+                if (segmentEnd < end) {
+                    template.append('/');
+                }
+            }
+            start = segmentEnd + 1;
+        }
+        if (template != null) {
+            return template.toString();
+        }
+        return (end == path.length()) ? path : path.substring(0, end);
+    }
+
+    private static String classify(String path, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        boolean digits = true;
+        boolean hex = true;
+        boolean hasDigit = false;
+        int dashes = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')) {
+                digits = false;
+            } else if (c == '-') {
+                digits = false;
+                dashes++;
+            } else {
+                digits = false;
+                hex = false;
+                if (length < MIN_HASH_LENGTH || !isTokenChar(c)) {
+                    return null;
+                }
+            }
+        }
+        if (digits) {
+            return ID;
+        }
+        if (hex && length == 36 && dashes == 4 && path.charAt(start + 8) == '-' && path.charAt(start + 13) == '-'
+                && path.charAt(start + 18) == '-' && path.charAt(start + 23) == '-') {
+            return UUID;
+        }
+        if (length >= MIN_HASH_LENGTH && hasDigit && dashes == 0) {
+            // long hex digests, or base64-like tokens mixing letters and digits
+            return HASH;
+        }
+        return null;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '.' || c == '~' || c == '%';
+    }
+}
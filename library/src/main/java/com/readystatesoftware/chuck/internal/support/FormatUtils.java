@@ -28,6 +28,9 @@ import org.xml.sax.InputSource;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Locale;
 
@@ -41,14 +44,15 @@ import javax.xml.transform.stream.StreamResult;
 public class FormatUtils {
 
     public static String formatHeaders(List<HttpHeader> httpHeaders, boolean withMarkup) {
-        String out = "";
+        StringBuilder out = new StringBuilder();
         if (httpHeaders != null) {
             for (HttpHeader header : httpHeaders) {
-                out += ((withMarkup) ? "<b>" : "") + header.getName() + ": " + ((withMarkup) ? "</b>" : "") +
-                        header.getValue() + ((withMarkup) ? "<br />" : "\n");
+                out.append((withMarkup) ? "<b>" : "").append(header.getName()).append(": ")
+                        .append((withMarkup) ? "</b>" : "").append(header.getValue())
+                        .append((withMarkup) ? "<br />" : "\n");
             }
         }
-        return out;
+        return out.toString();
     }
 
     public static String formatByteCount(long bytes, boolean si) {
@@ -86,60 +90,128 @@ public class FormatUtils {
     }
 
     public static String getShareText(Context context, HttpTransaction transaction) {
-        String text = "";
-        text += context.getString(R.string.chuck_url) + ": " + v(transaction.getUrl()) + "\n";
-        text += context.getString(R.string.chuck_method) + ": " + v(transaction.getMethod()) + "\n";
-        text += context.getString(R.string.chuck_protocol) + ": " + v(transaction.getProtocol()) + "\n";
-        text += context.getString(R.string.chuck_status) + ": " + v(transaction.getStatus().toString()) + "\n";
-        text += context.getString(R.string.chuck_response) + ": " + v(transaction.getResponseSummaryText()) + "\n";
-        text += context.getString(R.string.chuck_ssl) + ": " + v(context.getString(transaction.isSsl() ? R.string.chuck_yes : R.string.chuck_no)) + "\n";
-        text += "\n";
-        text += context.getString(R.string.chuck_request_time) + ": " + v(transaction.getRequestDateString()) + "\n";
-        text += context.getString(R.string.chuck_response_time) + ": " + v(transaction.getResponseDateString()) + "\n";
-        text += context.getString(R.string.chuck_duration) + ": " + v(transaction.getDurationString()) + "\n";
-        text += "\n";
-        text += context.getString(R.string.chuck_request_size) + ": " + v(transaction.getRequestSizeString()) + "\n";
-        text += context.getString(R.string.chuck_response_size) + ": " + v(transaction.getResponseSizeString()) + "\n";
-        text += context.getString(R.string.chuck_total_size) + ": " + v(transaction.getTotalSizeString()) + "\n";
-        text += "\n";
-        text += "---------- " + context.getString(R.string.chuck_request) + " ----------\n\n";
+        StringWriter writer = new StringWriter();
+        try {
+            writeShareText(context, transaction, writer);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the plain text share format of a transaction section by section. Each body is
+     * formatted as a whole before it is written, so it is held in memory once as a String.
+     */
+    public static void writeShareText(Context context, HttpTransaction transaction, Writer out) throws IOException {
+        line(out, context, R.string.chuck_url, transaction.getUrl());
+        line(out, context, R.string.chuck_method, transaction.getMethod());
+        line(out, context, R.string.chuck_protocol, transaction.getProtocol());
+        line(out, context, R.string.chuck_status, transaction.getStatus().toString());
+        line(out, context, R.string.chuck_response, transaction.getResponseSummaryText());
+        line(out, context, R.string.chuck_ssl, context.getString(transaction.isSsl() ? R.string.chuck_yes : R.string.chuck_no));
+        out.write("\n");
+        line(out, context, R.string.chuck_request_time, transaction.getRequestDateString());
+        line(out, context, R.string.chuck_response_time, transaction.getResponseDateString());
+        line(out, context, R.string.chuck_duration, transaction.getDurationString());
+        out.write("\n");
+        line(out, context, R.string.chuck_request_size, transaction.getRequestSizeString());
+        line(out, context, R.string.chuck_response_size, transaction.getResponseSizeString());
+        line(out, context, R.string.chuck_total_size, transaction.getTotalSizeString());
+        out.write("\n");
+        out.write("---------- " + context.getString(R.string.chuck_request) + " ----------\n\n");
         String headers = formatHeaders(transaction.getRequestHeaders(), false);
         if (!TextUtils.isEmpty(headers)) {
-            text += headers + "\n";
+            out.write(headers);
+            out.write("\n");
+        }
+        out.write((transaction.requestBodyIsPlainText()) ? v(transaction.getFormattedRequestBody()) :
+                context.getString(R.string.chuck_body_omitted));
+        if (transaction.requestBodyIsPlainText() && transaction.requestBodyIsTruncated()) {
+            out.write(context.getString(R.string.chuck_body_content_truncated));
         }
-        text += (transaction.requestBodyIsPlainText()) ? v(transaction.getFormattedRequestBody()) :
-                context.getString(R.string.chuck_body_omitted);
-        text += "\n\n";
-        text += "---------- " + context.getString(R.string.chuck_response) + " ----------\n\n";
+        out.write("\n\n");
+        out.write("---------- " + context.getString(R.string.chuck_response) + " ----------\n\n");
         headers = formatHeaders(transaction.getResponseHeaders(), false);
         if (!TextUtils.isEmpty(headers)) {
-            text += headers + "\n";
+            out.write(headers);
+            out.write("\n");
+        }
+        out.write((transaction.responseBodyIsPlainText()) ? v(transaction.getFormattedResponseBody()) :
+                context.getString(R.string.chuck_body_omitted));
+        if (transaction.responseBodyIsPlainText() && transaction.responseBodyIsTruncated()) {
+            out.write(context.getString(R.string.chuck_body_content_truncated));
         }
-        text += (transaction.responseBodyIsPlainText()) ? v(transaction.getFormattedResponseBody()) :
-                context.getString(R.string.chuck_body_omitted);
-        return text;
     }
 
     public static String getShareCurlCommand(HttpTransaction transaction) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeShareCurlCommand(transaction, writer, null);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes a curl command that repeats the request.
+     *
+     * @param bodyFileName if not null, the request body is referenced as {@code --data-binary @bodyFileName}
+     *                     instead of being written inline. The caller provides the file.
+     */
+    public static void writeShareCurlCommand(HttpTransaction transaction, Writer out,
+                                             String bodyFileName) throws IOException {
         boolean compressed = false;
-        String curlCmd = "curl";
-        curlCmd += " -X " + transaction.getMethod();
+        out.write("curl");
+        out.write(" -X " + transaction.getMethod());
         List<HttpHeader> headers = transaction.getRequestHeaders();
-        for (int i = 0, count = headers.size(); i < count; i++) {
+        for (int i = 0, count = (headers != null) ? headers.size() : 0; i < count; i++) {
             String name = headers.get(i).getName();
             String value = headers.get(i).getValue();
             if ("Accept-Encoding".equalsIgnoreCase(name) && "gzip".equalsIgnoreCase(value)) {
                 compressed = true;
             }
-            curlCmd += " -H " + "\"" + name + ": " + value + "\"";
+            out.write(" -H " + "\"" + name + ": " + value + "\"");
+        }
+        if (bodyFileName != null) {
+            out.write(" --data-binary @" + bodyFileName);
+        } else {
+            String requestBody = transaction.getRequestBody();
+            if (requestBody != null && requestBody.length() > 0) {
+                // try to keep to a single line and use a subshell to preserve any line breaks
+                out.write(" --data $'");
+                writeEscaped(requestBody, out);
+                out.write("'");
+            }
         }
-        String requestBody = transaction.getRequestBody();
-        if (requestBody != null && requestBody.length() > 0) {
-            // try to keep to a single line and use a subshell to preserve any line breaks
-            curlCmd += " --data $'" + requestBody.replace("\n", "\\n") + "'";
+        out.write(((compressed) ? " --compressed " : " ") + transaction.getUrl());
+    }
+
+    private static void writeEscaped(String value, Writer out) throws IOException {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\'':
+                    out.write("\\'");
+                    break;
+                default:
+                    out.write(c);
+            }
         }
-        curlCmd += ((compressed) ? " --compressed " : " ") + transaction.getUrl();
-        return curlCmd;
+    }
+
+    private static void line(Writer out, Context context, int labelResId, String value) throws IOException {
+        out.write(context.getString(labelResId));
+        out.write(": ");
+        out.write(v(value));
+        out.write("\n");
     }
 
     private static String v(String string) {
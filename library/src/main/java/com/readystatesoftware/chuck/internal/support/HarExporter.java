@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import com.google.gson.stream.JsonWriter;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.HttpHeader;
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Writes transactions to a HAR 1.2 file. Rows are read from the provider one at a time and
+ * streamed to the file, so memory use does not grow with the size of the history.
+ */
+public class HarExporter {
+
+    private static final String CREATOR = "Chuck";
+
+    private HarExporter() {
+    }
+
+    /**
+     * @param selection a filter on the transaction table, or null to export everything.
+     * @param gzip true to gzip the file.
+     */
+    public static void export(Context context, File target, String selection, String[] selectionArgs,
+                              boolean gzip, ProgressListener listener) throws IOException {
+        Cursor cursor = context.getContentResolver().query(ChuckContentProvider.TRANSACTION_URI, null,
+                selection, selectionArgs, "requestDate ASC");
+        if (cursor == null) {
+            throw new IOException("Unable to query transactions");
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+        try {
+            if (gzip) {
+                out = new GZIPOutputStream(out);
+            }
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, "UTF-8"));
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            int total = cursor.getCount();
+            listener.onProgress(0, total);
+            writer.beginObject().name("log").beginObject();
+            writer.name("version").value("1.2");
+            writer.name("creator").beginObject().name("name").value(CREATOR).name("version").value("1.0").endObject();
+            writer.name("entries").beginArray();
+            int done = 0;
+            while (cursor.moveToNext()) {
+                writeEntry(writer, LocalCupboard.getInstance().withCursor(cursor).get(HttpTransaction.class),
+                        dateFormat);
+                listener.onProgress(++done, total);
+            }
+            writer.endArray();
+            writer.endObject().endObject();
+            writer.close();
+        } finally {
+            cursor.close();
+            out.close();
+        }
+    }
+
+    private static void writeEntry(JsonWriter writer, HttpTransaction transaction,
+                                   SimpleDateFormat dateFormat) throws IOException {
+        long time = (transaction.getTookMs() != null) ? transaction.getTookMs() : -1;
+        String httpVersion = httpVersion(transaction.getProtocol());
+        writer.beginObject();
+        Date requestDate = transaction.getRequestDate();
+        writer.name("startedDateTime").value(dateFormat.format((requestDate != null) ? requestDate : new Date(0)));
+        writer.name("time").value(Math.max(time, 0));
+
+        writer.name("request").beginObject();
+        writer.name("method").value(transaction.getMethod());
+        writer.name("url").value(transaction.getUrl());
+        writer.name("httpVersion").value(httpVersion);
+        writer.name("cookies").beginArray().endArray();
+        writeHeaders(writer, transaction.getRequestHeaders());
+        writeQueryString(writer, transaction.getUrl());
+        if (transaction.getRequestBodyBytes() != null) {
+            writer.name("postData").beginObject();
+            writer.name("mimeType").value(v(transaction.getRequestContentType()));
+            writer.name("text").value(transaction.requestBodyIsPlainText() ? transaction.getRequestBody() : "");
+            writer.endObject();
+        }
+        writer.name("headersSize").value(-1);
+        writer.name("bodySize").value(size(transaction.getRequestContentLength()));
+        writer.endObject();
+
+        writer.name("response").beginObject();
+        writer.name("status").value((transaction.getResponseCode() != null) ? transaction.getResponseCode() : 0);
+        writer.name("statusText").value(v(transaction.getResponseMessage()));
+        writer.name("httpVersion").value(httpVersion);
+        writer.name("cookies").beginArray().endArray();
+        writeHeaders(writer, transaction.getResponseHeaders());
+        writer.name("content").beginObject();
+        writer.name("size").value(Math.max(size(transaction.getResponseContentLength()), 0));
+        writer.name("mimeType").value(v(transaction.getResponseContentType()));
+        if (transaction.getResponseBodyBytes() != null && transaction.responseBodyIsPlainText()) {
+            writer.name("text").value(transaction.getResponseBody());
+        }
+        writer.endObject();
+        writer.name("redirectURL").value(v(header(transaction.getResponseHeaders(), "Location")));
+        writer.name("headersSize").value(-1);
+        writer.name("bodySize").value(size(transaction.getResponseContentLength()));
+        writer.endObject();
+
+        writer.name("cache").beginObject().endObject();
+        writer.name("timings").beginObject();
+        PhaseTimings timings = PhaseTimings.fromBytes(transaction.getTimings());
+        if (timings != null) {
+            // HAR counts the TLS handshake as part of connect as well as on its own
+            writePhase(writer, "blocked", timings, PhaseTimings.PHASE_QUEUE);
+            writePhase(writer, "dns", timings, PhaseTimings.PHASE_DNS);
+            int ssl = timings.getPhaseUs(PhaseTimings.PHASE_TLS);
+            int connect = timings.getPhaseUs(PhaseTimings.PHASE_CONNECT);
+            writer.name("connect").value((connect < 0) ? -1 : (connect + Math.max(ssl, 0)) / 1000.0);
+            writePhase(writer, "ssl", timings, PhaseTimings.PHASE_TLS);
+            writer.name("send").value(Math.max(timings.getPhaseUs(PhaseTimings.PHASE_REQUEST), 0) / 1000.0);
+            writer.name("wait").value(Math.max(timings.getPhaseUs(PhaseTimings.PHASE_WAITING), 0) / 1000.0);
+            writer.name("receive").value(Math.max(timings.getPhaseUs(PhaseTimings.PHASE_RESPONSE), 0) / 1000.0);
+        } else {
+            writer.name("send").value(0);
+            writer.name("wait").value(Math.max(time, 0));
+            writer.name("receive").value(0);
+        }
+        writer.endObject();
+        if (transaction.getError() != null) {
+            writer.name("_error").value(transaction.getError());
+        }
+        writer.endObject();
+    }
+
+    private static void writePhase(JsonWriter writer, String name, PhaseTimings timings, int phase)
+            throws IOException {
+        int us = timings.getPhaseUs(phase);
+        writer.name(name).value((us < 0) ? -1 : us / 1000.0);
+    }
+
+    private static void writeHeaders(JsonWriter writer, List<HttpHeader> headers) throws IOException {
+        writer.name("headers").beginArray();
+        if (headers != null) {
+            for (HttpHeader header : headers) {
+                writer.beginObject().name("name").value(header.getName()).name("value").value(header.getValue())
+                        .endObject();
+            }
+        }
+        writer.endArray();
+    }
+
+    private static void writeQueryString(JsonWriter writer, String url) throws IOException {
+        writer.name("queryString").beginArray();
+        HttpUrl httpUrl = (url != null) ? HttpUrl.parse(url) : null;
+        if (httpUrl != null) {
+            for (int i = 0, count = httpUrl.querySize(); i < count; i++) {
+                writer.beginObject().name("name").value(httpUrl.queryParameterName(i))
+                        .name("value").value(v(httpUrl.queryParameterValue(i))).endObject();
+            }
+        }
+        writer.endArray();
+    }
+
+    private static String header(List<HttpHeader> headers, String name) {
+        if (headers != null) {
+            for (HttpHeader header : headers) {
+                if (header.getName().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String httpVersion(String protocol) {
+        return (protocol != null) ? protocol.toUpperCase(Locale.US) : "HTTP/1.1";
+    }
+
+    private static long size(Long length) {
+        return (length != null) ? length : -1;
+    }
+
+    private static String v(String string) {
+        return (string != null) ? string : "";
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Base64;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.HttpHeader;
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import nl.qbusict.cupboard.EntityCompartment;
+import okio.Buffer;
+
+/**
+ * Loads the entries of a HAR file into the transaction table. The file is parsed as a stream and
+ * written in batches, one database transaction per batch, so large files import quickly and in
+ * constant memory. Every imported row is tagged with a source so it can be told apart from
+ * captured traffic.
+ */
+public class HarImporter {
+
+    private static final int BATCH_SIZE = 500;
+    private static final long MAX_BODY_LENGTH = 250000L;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Pattern ISO_DATE = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2})(?:\\.(\\d+))?(Z|[+-]\\d{2}:?\\d{2})?");
+
+    private final Context context;
+    private final String source;
+    private final EntityCompartment<HttpTransaction> entity;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US);
+    private final List<ContentValues> batch = new ArrayList<>(BATCH_SIZE);
+    private int imported;
+
+    private HarImporter(Context context, String source) {
+        this.context = context;
+        this.source = source;
+        entity = LocalCupboard.getInstance().withEntity(HttpTransaction.class);
+    }
+
+    /**
+     * Imports a HAR file, which may be gzipped.
+     *
+     * @return the number of transactions imported.
+     */
+    public static int importHar(Context context, Uri uri, ProgressListener listener) throws IOException {
+        long size = getSize(context, uri);
+        InputStream in = context.getContentResolver().openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Unable to open " + uri);
+        }
+        CountingInputStream counter = new CountingInputStream(in);
+        try {
+            InputStream stream = new BufferedInputStream(counter);
+            if (isGzipped(stream)) {
+                stream = new GZIPInputStream(stream);
+            }
+            JsonReader reader = new JsonReader(new InputStreamReader(stream, UTF8));
+            reader.setLenient(true);
+            return new HarImporter(context, getSourceName(context, uri)).read(reader, counter, size, listener);
+        } finally {
+            counter.close();
+        }
+    }
+
+    private int read(JsonReader reader, CountingInputStream counter, long size,
+                     ProgressListener listener) throws IOException {
+        int total = (int) Math.min(Integer.MAX_VALUE, Math.max(size, 0) / 1024);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"log".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"entries".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    add(readEntry(reader));
+                    if (batch.size() == BATCH_SIZE) {
+                        flush();
+                        listener.onProgress((int) Math.min(total, counter.count / 1024), total);
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        flush();
+        listener.onProgress(total, total);
+        return imported;
+    }
+
+    private void add(HttpTransaction transaction) {
+        transaction.setSource(source);
+        ContentValues values = entity.toContentValues(transaction);
+        values.remove("_id");
+        batch.add(values);
+    }
+
+    private void flush() {
+        if (!batch.isEmpty()) {
+            imported += context.getContentResolver().bulkInsert(ChuckContentProvider.TRANSACTION_URI,
+                    batch.toArray(new ContentValues[batch.size()]));
+            batch.clear();
+        }
+    }
+
+    private HttpTransaction readEntry(JsonReader reader) throws IOException {
+        HttpTransaction transaction = new HttpTransaction();
+        long time = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("startedDateTime".equals(name)) {
+                transaction.setRequestDate(parseDate(nextString(reader)));
+            } else if ("time".equals(name)) {
+                time = (long) reader.nextDouble();
+            } else if ("request".equals(name)) {
+                readRequest(reader, transaction);
+            } else if ("response".equals(name)) {
+                readResponse(reader, transaction);
+            } else if ("_error".equals(name)) {
+                transaction.setError(nextString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (transaction.getResponseCode() == null && transaction.getError() == null) {
+            transaction.setError("No response");
+        }
+        if (time >= 0) {
+            transaction.setTookMs(time);
+            if (transaction.getRequestDate() != null) {
+                transaction.setResponseDate(new Date(transaction.getRequestDate().getTime() + time));
+            }
+        }
+        return transaction;
+    }
+
+    private void readRequest(JsonReader reader, HttpTransaction transaction) throws IOException {
+        long bodySize = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("method".equals(name)) {
+                transaction.setMethod(nextString(reader));
+            } else if ("url".equals(name)) {
+                String url = nextString(reader);
+                if (url != null) {
+                    transaction.setUrl(url);
+                }
+            } else if ("httpVersion".equals(name)) {
+                String version = nextString(reader);
+                transaction.setProtocol((version != null) ? version.toLowerCase(Locale.US) : null);
+            } else if ("headers".equals(name)) {
+                transaction.setRequestHeaders(readHeaders(reader));
+            } else if ("postData".equals(name)) {
+                Content content = readContent(reader);
+                transaction.setRequestContentType(content.mimeType);
+                if (content.body != null) {
+                    setBody(transaction, content, true);
+                }
+            } else if ("bodySize".equals(name)) {
+                bodySize = (long) reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (bodySize >= 0) {
+            transaction.setRequestContentLength(bodySize);
+        }
+    }
+
+    private void readResponse(JsonReader reader, HttpTransaction transaction) throws IOException {
+        long bodySize = -1;
+        long contentSize = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("status".equals(name)) {
+                int status = reader.nextInt();
+                // browsers use 0 for requests that never got a response
+                if (status > 0) {
+                    transaction.setResponseCode(status);
+                }
+            } else if ("statusText".equals(name)) {
+                transaction.setResponseMessage(nextString(reader));
+            } else if ("headers".equals(name)) {
+                transaction.setResponseHeaders(readHeaders(reader));
+            } else if ("content".equals(name)) {
+                Content content = readContent(reader);
+                transaction.setResponseContentType(content.mimeType);
+                contentSize = content.size;
+                if (content.body != null) {
+                    setBody(transaction, content, false);
+                }
+            } else if ("bodySize".equals(name)) {
+                bodySize = (long) reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        long length = (contentSize >= 0) ? contentSize : bodySize;
+        if (length >= 0) {
+            transaction.setResponseContentLength(length);
+        }
+    }
+
+    private static List<HttpHeader> readHeaders(JsonReader reader) throws IOException {
+        List<HttpHeader> headers = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String headerName = null;
+            String headerValue = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("name".equals(name)) {
+                    headerName = nextString(reader);
+                } else if ("value".equals(name)) {
+                    headerValue = nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            // HTTP/2 pseudo headers such as :authority are not real headers
+            if (headerName != null && !headerName.startsWith(":")) {
+                headers.add(new HttpHeader(headerName, (headerValue != null) ? headerValue : ""));
+            }
+        }
+        reader.endArray();
+        return headers;
+    }
+
+    private static Content readContent(JsonReader reader) throws IOException {
+        Content content = new Content();
+        String text = null;
+        boolean base64 = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("mimeType".equals(name)) {
+                content.mimeType = nextString(reader);
+            } else if ("text".equals(name)) {
+                text = nextString(reader);
+            } else if ("encoding".equals(name)) {
+                base64 = "base64".equalsIgnoreCase(nextString(reader));
+            } else if ("size".equals(name)) {
+                content.size = (long) reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (text != null && text.length() > 0) {
+            content.plainText = !base64;
+            try {
+                content.body = base64 ? Base64.decode(text, Base64.DEFAULT) : text.getBytes(UTF8);
+            } catch (IllegalArgumentException e) {
+                content.body = null;
+            }
+        }
+        return content;
+    }
+
+    private static void setBody(HttpTransaction transaction, Content content, boolean request) throws IOException {
+        if (!content.plainText) {
+            // binary bodies are not shown, so there is no point storing them
+            if (request) {
+                transaction.setRequestBodyIsPlainText(false);
+            } else {
+                transaction.setResponseBodyIsPlainText(false);
+            }
+            return;
+        }
+        boolean truncated = content.body.length > MAX_BODY_LENGTH;
+        byte[] body = truncated ?
+                BodyUtils.readTruncated(new Buffer().write(content.body), MAX_BODY_LENGTH, UTF8) : content.body;
+        if (request) {
+            transaction.setRequestBody(body, UTF8, truncated);
+        } else {
+            transaction.setResponseBody(body, UTF8, truncated);
+        }
+    }
+
+    private Date parseDate(String value) {
+        if (value != null) {
+            Matcher matcher = ISO_DATE.matcher(value);
+            if (matcher.lookingAt()) {
+                String fraction = (matcher.group(2) != null) ? (matcher.group(2) + "00").substring(0, 3) : "000";
+                String zone = matcher.group(3);
+                zone = (zone == null || zone.equals("Z")) ? "+0000" : zone.replace(":", "");
+                try {
+                    Date date = dateFormat.parse(matcher.group(1) + zone);
+                    return new Date(date.getTime() + Integer.parseInt(fraction));
+                } catch (ParseException ignored) {}
+            }
+        }
+        return new Date();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static boolean isGzipped(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == 0x1f && second == 0x8b;
+    }
+
+    private static long getSize(Context context, Uri uri) {
+        Cursor cursor = context.getContentResolver().query(uri, new String[] { OpenableColumns.SIZE },
+                null, null, null);
+        if (cursor != null) {
+            try {
+                if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                    return cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return -1;
+    }
+
+    private static String getSourceName(Context context, Uri uri) {
+        Cursor cursor = context.getContentResolver().query(uri, new String[] { OpenableColumns.DISPLAY_NAME },
+                null, null, null);
+        if (cursor != null) {
+            try {
+                if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                    return cursor.getString(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        String name = uri.getLastPathSegment();
+        return (name != null) ? name : "import";
+    }
+
+    private static class Content {
+        String mimeType;
+        long size = -1;
+        byte[] body;
+        boolean plainText = true;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
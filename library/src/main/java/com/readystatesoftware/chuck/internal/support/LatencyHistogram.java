@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A compact log-linear histogram of durations in milliseconds. Values below 16 ms get a bucket
+ * each, larger values get 8 buckets per power of two, which keeps percentiles within 12.5% using
+ * at most 232 counters. Only the counters up to the last used bucket are stored.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (31 - 4) * SUB_BUCKETS;
+
+    private final int[] counts;
+    private long total;
+
+    public LatencyHistogram() {
+        counts = new int[BUCKETS];
+    }
+
+    public static LatencyHistogram fromBytes(byte[] bytes) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (bytes != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < BUCKETS && buffer.remaining() >= 4; i++) {
+                histogram.counts[i] = buffer.getInt();
+                histogram.total += histogram.counts[i];
+            }
+        }
+        return histogram;
+    }
+
+    public byte[] toBytes() {
+        int used = BUCKETS;
+        while (used > 0 && counts[used - 1] == 0) {
+            used--;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(used * 4);
+        for (int i = 0; i < used; i++) {
+            buffer.putInt(counts[i]);
+        }
+        return buffer.array();
+    }
+
+    public void record(long ms) {
+        counts[bucketOf(ms)]++;
+        total++;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * @param quantile a value between 0 and 1, for example 0.99.
+     * @return the upper bound of the bucket holding the quantile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucketOf(long ms) {
+        long value = Math.max(0, Math.min(ms, Integer.MAX_VALUE));
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        return LINEAR_BUCKETS + (msb - 4) * SUB_BUCKETS
+                + (int) ((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int msb = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (msb - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + sub) * width + width - 1;
+    }
+}
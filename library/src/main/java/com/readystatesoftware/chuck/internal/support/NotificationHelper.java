@@ -21,92 +21,204 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.content.ContextCompat;
-import android.util.LongSparseArray;
 
 import com.readystatesoftware.chuck.Chuck;
 import com.readystatesoftware.chuck.R;
-import com.readystatesoftware.chuck.internal.data.HttpTransaction;
 import com.readystatesoftware.chuck.internal.ui.BaseChuckActivity;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class NotificationHelper {
 
     private static final String CHANNEL_ID = "chuck";
     private static final int NOTIFICATION_ID = 1138;
     private static final int BUFFER_SIZE = 10;
+    private static final long MIN_UPDATE_INTERVAL_MS = 300;
 
-    private static final LongSparseArray<HttpTransaction> transactionBuffer = new LongSparseArray<>();
-    private static int transactionCount;
+    // the latest transactions as summaries; slots are claimed in turn and replaced without locking
+    private static final AtomicReferenceArray<Summary> transactionBuffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+    private static final AtomicLong nextSlot = new AtomicLong();
+    private static final AtomicInteger transactionCount = new AtomicInteger();
+    private static final AtomicInteger sampledOutCount = new AtomicInteger();
+    private static final AtomicBoolean updatePending = new AtomicBoolean();
+    private static volatile long lastUpdate;
+    private static Handler handler;
+
+    private static boolean channelCreated;
+    private static Method setChannelId;
 
     private final Context context;
     private final NotificationManager notificationManager;
-    private Method setChannelId;
 
-    public static synchronized void clearBuffer() {
-        transactionBuffer.clear();
-        transactionCount = 0;
+    /**
+     * What the notification shows for one transaction, so that the buffer does not keep
+     * transactions and their bodies alive.
+     */
+    private static final class Summary {
+        final long id;
+        final String text;
+
+        Summary(long id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    public static void clearBuffer() {
+        trimBuffer();
+        transactionCount.set(0);
+        sampledOutCount.set(0);
+    }
+
+    public static void recordSampledOut() {
+        sampledOutCount.incrementAndGet();
+    }
+
+    public static void trimBuffer() {
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            transactionBuffer.set(i, null);
+        }
     }
 
-    private static synchronized void addToBuffer(HttpTransaction transaction) {
-        if (transaction.getStatus() == HttpTransaction.Status.Requested) {
-            transactionCount++;
+    private static void addToBuffer(long id, String text, boolean created) {
+        if (created) {
+            transactionCount.incrementAndGet();
+        }
+        Summary summary = new Summary(id, text);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            Summary current = transactionBuffer.get(i);
+            if (current != null && current.id == summary.id) {
+                transactionBuffer.compareAndSet(i, current, summary);
+                return;
+            }
         }
-        transactionBuffer.put(transaction.getId(), transaction);
-        if (transactionBuffer.size() > BUFFER_SIZE) {
-            transactionBuffer.removeAt(0);
+        transactionBuffer.set((int) (nextSlot.getAndIncrement() % BUFFER_SIZE), summary);
+    }
+
+    /**
+     * @return the buffered summaries, newest first.
+     */
+    private static List<Summary> getBufferedSummaries() {
+        List<Summary> summaries = new ArrayList<>(BUFFER_SIZE);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            Summary summary = transactionBuffer.get(i);
+            if (summary != null) {
+                summaries.add(summary);
+            }
         }
+        Collections.sort(summaries, new Comparator<Summary>() {
+            @Override
+            public int compare(Summary a, Summary b) {
+                return (a.id < b.id) ? 1 : ((a.id == b.id) ? 0 : -1);
+            }
+        });
+        return summaries;
+    }
+
+    private static synchronized Handler getHandler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("Chuck notifications", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
     }
 
     public NotificationHelper(Context context) {
         this.context = context;
         notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            notificationManager.createNotificationChannel(
-                    new NotificationChannel(CHANNEL_ID,
-                            context.getString(R.string.notification_category), NotificationManager.IMPORTANCE_LOW));
-            try {
-                setChannelId = NotificationCompat.Builder.class.getMethod("setChannelId", String.class);
-            } catch (Exception ignored) {}
-        }
     }
 
-    public synchronized void show(HttpTransaction transaction) {
-        addToBuffer(transaction);
-        if (!BaseChuckActivity.isInForeground()) {
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
-                    .setContentIntent(PendingIntent.getActivity(context, 0, Chuck.getLaunchIntent(context), 0))
-                    .setLocalOnly(true)
-                    .setSmallIcon(R.drawable.chuck_ic_notification_white_24dp)
-                    .setColor(ContextCompat.getColor(context, R.color.chuck_colorPrimary))
-                    .setContentTitle(context.getString(R.string.chuck_notification_title));
-            NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle();
-            if (setChannelId != null) {
-                try { setChannelId.invoke(builder, CHANNEL_ID); } catch (Exception ignored) {}
+    /**
+     * Creates the notification channel the first time a notification is posted rather than
+     * when Chuck is set up, which is usually during application startup.
+     */
+    private static synchronized void ensureChannel(Context context, NotificationManager notificationManager) {
+        if (!channelCreated) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                notificationManager.createNotificationChannel(
+                        new NotificationChannel(CHANNEL_ID,
+                                context.getString(R.string.notification_category), NotificationManager.IMPORTANCE_LOW));
+                try {
+                    setChannelId = NotificationCompat.Builder.class.getMethod("setChannelId", String.class);
+                } catch (Exception ignored) {}
             }
-            int count = 0;
-            for (int i = transactionBuffer.size() - 1; i >= 0; i--) {
-                if (count < BUFFER_SIZE) {
-                    if (count == 0) {
-                        builder.setContentText(transactionBuffer.valueAt(i).getNotificationText());
-                    }
-                    inboxStyle.addLine(transactionBuffer.valueAt(i).getNotificationText());
+            channelCreated = true;
+        }
+    }
+
+    /**
+     * Records a transaction and schedules a notification update. Bursts of calls are coalesced
+     * into at most one update every {@link #MIN_UPDATE_INTERVAL_MS} on a background thread.
+     *
+     * @param text the notification text of the transaction when it was captured, as the
+     *             transaction itself may have moved on by the time this runs.
+     * @param created true when the transaction was just stored, so that it is counted once
+     *                however many times it is updated.
+     */
+    public void show(long id, String text, boolean created) {
+        addToBuffer(id, text, created);
+        if (updatePending.compareAndSet(false, true)) {
+            long delay = lastUpdate + MIN_UPDATE_INTERVAL_MS - SystemClock.uptimeMillis();
+            getHandler().postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    updatePending.set(false);
+                    lastUpdate = SystemClock.uptimeMillis();
+                    post();
                 }
-                count++;
-            }
-            builder.setAutoCancel(true);
-            builder.setStyle(inboxStyle);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                builder.setSubText(String.valueOf(transactionCount));
-            } else {
-                builder.setNumber(transactionCount);
-            }
-            builder.addAction(getClearAction());
-            notificationManager.notify(NOTIFICATION_ID, builder.build());
+            }, Math.max(0, delay));
+        }
+    }
+
+    private void post() {
+        List<Summary> summaries = getBufferedSummaries();
+        if (summaries.isEmpty() || BaseChuckActivity.isInForeground()) {
+            return;
+        }
+        ensureChannel(context, notificationManager);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
+                .setContentIntent(PendingIntent.getActivity(context, 0, Chuck.getLaunchIntent(context), 0))
+                .setLocalOnly(true)
+                .setSmallIcon(R.drawable.chuck_ic_notification_white_24dp)
+                .setColor(ContextCompat.getColor(context, R.color.chuck_colorPrimary))
+                .setContentTitle(context.getString(R.string.chuck_notification_title));
+        NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle();
+        if (setChannelId != null) {
+            try { setChannelId.invoke(builder, CHANNEL_ID); } catch (Exception ignored) {}
+        }
+        builder.setContentText(summaries.get(0).text);
+        for (Summary summary : summaries) {
+            inboxStyle.addLine(summary.text);
+        }
+        builder.setAutoCancel(true);
+        builder.setStyle(inboxStyle);
+        int count = transactionCount.get();
+        int sampledOut = sampledOutCount.get();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            builder.setSubText((sampledOut > 0) ?
+                    context.getString(R.string.chuck_notification_sampled_out, count, sampledOut) :
+                    String.valueOf(count));
+        } else {
+            builder.setNumber(count);
         }
+        builder.addAction(getClearAction());
+        notificationManager.notify(NOTIFICATION_ID, builder.build());
     }
 
     @NonNull
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * When each stage of a call happened, as microsecond offsets from the start of the call. Stored
+ * as a fixed-width record of one int per event so that recording costs a clock read and an
+ * array store, and the stored form never needs parsing beyond a byte buffer.
+ */
+public class PhaseTimings {
+
+    public static final int DNS_START = 0;
+    public static final int DNS_END = 1;
+    public static final int CONNECT_START = 2;
+    public static final int SECURE_CONNECT_START = 3;
+    public static final int SECURE_CONNECT_END = 4;
+    public static final int CONNECT_END = 5;
+    public static final int REQUEST_START = 6;
+    public static final int REQUEST_END = 7;
+    public static final int RESPONSE_HEADERS_END = 8;
+    public static final int RESPONSE_END = 9;
+    public static final int CALL_END = 10;
+    public static final int INTERCEPT_START = 11;
+    private static final int EVENTS = 12;
+
+    public static final int PHASE_QUEUE = 0;
+    public static final int PHASE_DNS = 1;
+    public static final int PHASE_CONNECT = 2;
+    public static final int PHASE_TLS = 3;
+    public static final int PHASE_REQUEST = 4;
+    public static final int PHASE_WAITING = 5;
+    public static final int PHASE_RESPONSE = 6;
+    public static final int PHASES = 7;
+
+    private static final int NOT_SEEN = -1;
+
+    private final int[] offsetsUs = new int[EVENTS];
+    private final long startNs;
+
+    /**
+     * Starts timing a call now.
+     */
+    public PhaseTimings() {
+        this(System.nanoTime());
+    }
+
+    private PhaseTimings(long startNs) {
+        this.startNs = startNs;
+        Arrays.fill(offsetsUs, NOT_SEEN);
+    }
+
+    /**
+     * @return the timings held in a record written by {@link #toBytes()}, or null if there is none.
+     * Events missing from older, shorter records are treated as not seen.
+     */
+    public static PhaseTimings fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        PhaseTimings timings = new PhaseTimings(0);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < EVENTS && buffer.remaining() >= 4; i++) {
+            timings.offsetsUs[i] = buffer.getInt();
+        }
+        return timings;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(EVENTS * 4);
+        for (int offset : offsetsUs) {
+            buffer.putInt(offset);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Records that an event happened now. Events that repeat, for example on a redirect, keep
+     * the latest time.
+     */
+    public void mark(int event) {
+        long us = (System.nanoTime() - startNs) / 1000;
+        offsetsUs[event] = (int) Math.min(us, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the offset of the event in microseconds, or -1 if it did not happen.
+     */
+    public int getOffsetUs(int event) {
+        return offsetsUs[event];
+    }
+
+    /**
+     * @return the offset at which the phase started in microseconds, or -1 if the call did
+     * not go through it, for example DNS and connect on a pooled connection.
+     */
+    public int getPhaseStartUs(int phase) {
+        switch (phase) {
+            case PHASE_QUEUE:
+                // from the start of the call until the dispatcher let it run
+                return (offsetsUs[INTERCEPT_START] != NOT_SEEN) ? 0 : NOT_SEEN;
+            case PHASE_DNS:
+                return offsetsUs[DNS_START];
+            case PHASE_CONNECT:
+                return offsetsUs[CONNECT_START];
+            case PHASE_TLS:
+                return offsetsUs[SECURE_CONNECT_START];
+            case PHASE_REQUEST:
+                return offsetsUs[REQUEST_START];
+            case PHASE_WAITING:
+                return offsetsUs[REQUEST_END];
+            default:
+                return offsetsUs[RESPONSE_HEADERS_END];
+        }
+    }
+
+    /**
+     * @return the offset at which the phase ended in microseconds, or -1 if it did not complete.
+     */
+    public int getPhaseEndUs(int phase) {
+        switch (phase) {
+            case PHASE_QUEUE:
+                return offsetsUs[INTERCEPT_START];
+            case PHASE_DNS:
+                return offsetsUs[DNS_END];
+            case PHASE_CONNECT:
+                // the TLS handshake is shown as a phase of its own
+                return (offsetsUs[SECURE_CONNECT_START] != NOT_SEEN) ?
+                        offsetsUs[SECURE_CONNECT_START] : offsetsUs[CONNECT_END];
+            case PHASE_TLS:
+                return offsetsUs[SECURE_CONNECT_END];
+            case PHASE_REQUEST:
+                return offsetsUs[REQUEST_END];
+            case PHASE_WAITING:
+                return offsetsUs[RESPONSE_HEADERS_END];
+            default:
+                return (offsetsUs[RESPONSE_END] != NOT_SEEN) ? offsetsUs[RESPONSE_END] : offsetsUs[CALL_END];
+        }
+    }
+
+    /**
+     * @return how long the phase took in microseconds, or -1 if it was not seen.
+     */
+    public int getPhaseUs(int phase) {
+        int start = getPhaseStartUs(phase);
+        int end = getPhaseEndUs(phase);
+        return (start != NOT_SEEN && end >= start) ? end - start : NOT_SEEN;
+    }
+
+    /**
+     * @return the time from the start of the call to the last recorded event, in microseconds.
+     */
+    public int getTotalUs() {
+        int total = 0;
+        for (int offset : offsetsUs) {
+            total = Math.max(total, offset);
+        }
+        return total;
+    }
+}
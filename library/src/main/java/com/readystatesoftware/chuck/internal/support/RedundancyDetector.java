@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.support;
+
+import android.os.SystemClock;
+
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.Request;
+import okio.Buffer;
+
+/**
+ * Flags requests that repeat one made moments earlier, or that arrive in a burst of calls to
+ * the same endpoint, over a sliding window of recent requests.
+ */
+public class RedundancyDetector {
+
+    public static final long DUPLICATE_WINDOW_MS = 1000;
+    public static final long BURST_WINDOW_MS = 2000;
+    public static final int BURST_CALLS = 5;
+    private static final int MAX_ENTRIES = 1000;
+
+    /**
+     * A request in the window, oldest first.
+     */
+    private static final class Entry {
+        final long time;
+        final String key;
+        final String endpoint;
+
+        Entry(long time, String key, String endpoint) {
+            this.time = time;
+            this.key = key;
+            this.endpoint = endpoint;
+        }
+    }
+
+    private final ArrayDeque<Entry> window = new ArrayDeque<>();
+    // the newest window entry for each request key still in the window
+    private final Map<String, Entry> lastSeen = new HashMap<>();
+    // requests per endpoint template in the window
+    private final Map<String, Integer> endpointCounts = new HashMap<>();
+
+    /**
+     * Records the request and checks it against the window. A request with a body that was not
+     * captured in full cannot be compared, so it can only be flagged as part of a burst.
+     *
+     * @return the kind of redundancy, or null if the request looks necessary.
+     */
+    public HttpTransaction.Redundancy check(Request request, HttpTransaction transaction) {
+        String key = requestKey(request, transaction);
+        String endpoint = CaptureSampler.endpointKey(request);
+        long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            evict(now);
+            Entry previous = (key != null) ? lastSeen.get(key) : null;
+            Integer count = endpointCounts.get(endpoint);
+            int recentCalls = (count != null) ? count : 0;
+
+            Entry entry = new Entry(now, key, endpoint);
+            window.addLast(entry);
+            if (key != null) {
+                lastSeen.put(key, entry);
+            }
+            endpointCounts.put(endpoint, recentCalls + 1);
+
+            if (previous != null && now - previous.time <= DUPLICATE_WINDOW_MS) {
+                return HttpTransaction.Redundancy.Duplicate;
+            }
+            return (recentCalls + 1 >= BURST_CALLS) ? HttpTransaction.Redundancy.Burst : null;
+        }
+    }
+
+    private void evict(long now) {
+        while (!window.isEmpty() && (now - window.peekFirst().time > BURST_WINDOW_MS || window.size() >= MAX_ENTRIES)) {
+            Entry entry = window.removeFirst();
+            // a newer request with the same key keeps it, even one made in the same millisecond
+            if (entry.key != null && lastSeen.get(entry.key) == entry) {
+                lastSeen.remove(entry.key);
+            }
+            int count = endpointCounts.get(entry.endpoint) - 1;
+            if (count > 0) {
+                endpointCounts.put(entry.endpoint, count);
+            } else {
+                endpointCounts.remove(entry.endpoint);
+            }
+        }
+    }
+
+    /**
+     * @return a digest of the method, URL, headers and body, or null if the body is unknown or
+     * was truncated, as different bodies with a common start would otherwise match.
+     */
+    private static String requestKey(Request request, HttpTransaction transaction) {
+        byte[] body = transaction.getRequestBodyBytes();
+        if (request.body() != null && (body == null || transaction.requestBodyIsTruncated())) {
+            return null;
+        }
+        Buffer buffer = new Buffer()
+                .writeUtf8(request.method()).writeByte('\n')
+                .writeUtf8(request.url().toString()).writeByte('\n')
+                .writeUtf8(request.headers().toString());
+        if (body != null) {
+            buffer.write(body);
+        }
+        return buffer.md5().hex();
+    }
+}
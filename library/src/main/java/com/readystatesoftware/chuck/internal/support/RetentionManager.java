@@ -15,48 +15,64 @@ public class RetentionManager {
     private static final String LOG_TAG = "Chuck";
     private static final String PREFS_NAME = "chuck_preferences";
     private static final String KEY_LAST_CLEANUP = "last_cleanup";
+    // also applies to radio periods, which are kept at a similar granularity
+    private static final long MINUTE_ROLLUP_RETENTION = TimeUnit.DAYS.toMillis(7);
 
     private static long lastCleanup;
 
     private final Context context;
     private final long period;
     private final long cleanupFrequency;
-    private final SharedPreferences prefs;
+    private SharedPreferences prefs;
 
     public RetentionManager(Context context, ChuckInterceptor.Period retentionPeriod) {
         this.context = context;
         period = toMillis(retentionPeriod);
-        prefs = context.getSharedPreferences(PREFS_NAME, 0);
         cleanupFrequency = (retentionPeriod == ChuckInterceptor.Period.ONE_HOUR) ?
                 TimeUnit.MINUTES.toMillis(30) : TimeUnit.HOURS.toMillis(2);
     }
 
     public synchronized void doMaintenance() {
-        if (period > 0) {
-            long now = System.currentTimeMillis();
-            if (isCleanupDue(now)) {
-                Log.i(LOG_TAG, "Performing data retention maintenance...");
+        long now = System.currentTimeMillis();
+        if (isCleanupDue(now)) {
+            Log.i(LOG_TAG, "Performing data retention maintenance...");
+            if (period > 0) {
                 deleteSince(getThreshold(now));
-                updateLastCleanup(now);
             }
+            // hourly rollups are small enough to keep indefinitely
+            context.getContentResolver().delete(ChuckContentProvider.MINUTE_ROLLUP_URI,
+                    "bucket <= ?", new String[] { String.valueOf(now - MINUTE_ROLLUP_RETENTION) });
+            context.getContentResolver().delete(ChuckContentProvider.RADIO_URI,
+                    "endTime <= ?", new String[] { String.valueOf(now - MINUTE_ROLLUP_RETENTION) });
+            updateLastCleanup(now);
         }
     }
 
     private long getLastCleanup(long fallback) {
         if (lastCleanup == 0) {
-            lastCleanup = prefs.getLong(KEY_LAST_CLEANUP, fallback);
+            lastCleanup = getPrefs().getLong(KEY_LAST_CLEANUP, fallback);
         }
         return lastCleanup;
     }
 
     private void updateLastCleanup(long time) {
         lastCleanup = time;
-        prefs.edit().putLong(KEY_LAST_CLEANUP, time).apply();
+        getPrefs().edit().putLong(KEY_LAST_CLEANUP, time).apply();
+    }
+
+    private SharedPreferences getPrefs() {
+        // loaded from disk on first use, which is on the writer thread rather than at startup
+        if (prefs == null) {
+            prefs = context.getSharedPreferences(PREFS_NAME, 0);
+        }
+        return prefs;
     }
 
     private void deleteSince(long threshold) {
         int rows = context.getContentResolver().delete(ChuckContentProvider.TRANSACTION_URI,
                 "requestDate <= ?", new String[] { String.valueOf(threshold) });
+        context.getContentResolver().delete(ChuckContentProvider.HOP_URI,
+                "requestDate <= ?", new String[] { String.valueOf(threshold) });
         Log.i(LOG_TAG, rows + " transactions deleted");
     }
 
@@ -15,25 +15,39 @@
  */
 package com.readystatesoftware.chuck.internal.support;
 
+import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
-import android.os.Environment;
+import android.os.AsyncTask;
+import android.util.Log;
 import android.widget.Toast;
 
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.DatabaseExporter;
+
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.nio.channels.FileChannel;
 
 public class SQLiteUtils {
 
+    private static final String LOG_TAG = "Chuck";
+
     public static void browseDatabase(Context context) {
+        browseDatabase(context, 0, 0);
+    }
+
+    /**
+     * Exports transactions to external storage in the background, then opens the export in a
+     * SQLite viewer app.
+     *
+     * @param from the earliest request date to export, in milliseconds, or 0 for no lower bound.
+     * @param to the request date to stop at (exclusive), in milliseconds, or 0 for no upper bound.
+     */
+    public static void browseDatabase(Context context, long from, long to) {
         if (isIntentResolvable(context, getSQLiteDebuggerAppIntent("/"))) {
-            String path = extractDatabase(context);
-            if (path != null) {
-                Intent intent = getSQLiteDebuggerAppIntent(path);
-                context.startActivity(intent);
+            File external = context.getExternalFilesDir(null);
+            if (external != null && external.canWrite()) {
+                new ExportTask(context, new File(external, "chuckdb.temp"), from, to).execute();
             } else {
                 Toast.makeText(context, "Unable to extract database", Toast.LENGTH_SHORT).show();
             }
@@ -42,28 +56,70 @@ public class SQLiteUtils {
         }
     }
 
-    private static String extractDatabase(Context context) {
-        try {
-            File external = context.getExternalFilesDir(null);
-            File data = Environment.getDataDirectory();
-            if (external != null && external.canWrite()) {
-                String dataDBPath = "data/" + context.getPackageName() + "/databases/chuck.db";
-                String extractDBPath = "chuckdb.temp";
-                File dataDB = new File(data, dataDBPath);
-                File extractDB = new File(external, extractDBPath);
-                if (dataDB.exists()) {
-                    FileChannel in = new FileInputStream(dataDB).getChannel();
-                    FileChannel out = new FileOutputStream(extractDB).getChannel();
-                    out.transferFrom(in, 0, in.size());
-                    in.close();
-                    out.close();
-                    return extractDB.getAbsolutePath();
+    private static class ExportTask extends AsyncTask<Void, Integer, Boolean>
+            implements ProgressListener {
+
+        private final Context context;
+        private final File target;
+        private final long from;
+        private final long to;
+        private final ProgressDialog dialog;
+
+        ExportTask(Context context, File target, long from, long to) {
+            this.context = context.getApplicationContext();
+            this.target = target;
+            this.from = from;
+            this.to = to;
+            dialog = new ProgressDialog(context);
+            dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+            dialog.setMessage(context.getString(R.string.chuck_exporting));
+            dialog.setCancelable(false);
+        }
+
+        @Override
+        protected void onPreExecute() {
+            dialog.show();
+        }
+
+        @Override
+        protected Boolean doInBackground(Void... params) {
+            try {
+                DatabaseExporter.export(context, target, from, to, this);
+                return true;
+            } catch (Exception e) {
+                Log.w(LOG_TAG, "Database export failed", e);
+                return false;
+            }
+        }
+
+        @Override
+        public void onProgress(int done, int total) {
+            publishProgress(done, total);
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            dialog.setMax(values[1]);
+            dialog.setProgress(values[0]);
+        }
+
+        @Override
+        protected void onPostExecute(Boolean exported) {
+            if (dialog.isShowing()) {
+                try {
+                    dialog.dismiss();
+                } catch (IllegalArgumentException ignored) {
+                    // the activity went away during the export
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            if (exported) {
+                Intent intent = getSQLiteDebuggerAppIntent(target.getAbsolutePath());
+                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                context.startActivity(intent);
+            } else {
+                Toast.makeText(context, "Unable to extract database", Toast.LENGTH_SHORT).show();
+            }
         }
-        return null;
     }
 
     private static Intent getSQLiteDebuggerAppIntent(String path) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.content.Loader;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.CacheabilityStats;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+import com.readystatesoftware.chuck.internal.support.ChuckExecutor;
+import com.readystatesoftware.chuck.internal.support.FormatUtils;
+
+/**
+ * URLs fetched repeatedly with unchanged bodies, ordered by the bandwidth caching would save.
+ */
+public class CacheabilityFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+
+    private TextView summary;
+    private Adapter adapter;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setHasOptionsMenu(true);
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.chuck_fragment_findings, container, false);
+        summary = (TextView) view.findViewById(R.id.summary);
+        RecyclerView recyclerView = (RecyclerView) view.findViewById(R.id.list);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.addItemDecoration(new DividerItemDecoration(getContext(), DividerItemDecoration.VERTICAL));
+        adapter = new Adapter();
+        recyclerView.setAdapter(adapter);
+        return view;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        getLoaderManager().initLoader(0, null, this);
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        menu.add(Menu.NONE, R.id.reset_stats, Menu.NONE, R.string.chuck_reset);
+        super.onCreateOptionsMenu(menu, inflater);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.reset_stats) {
+            final android.content.Context context = getContext().getApplicationContext();
+            ChuckExecutor.write(new Runnable() {
+                @Override
+                public void run() {
+                    context.getContentResolver().delete(ChuckContentProvider.CACHEABILITY_URI, "source IS NULL", null);
+                }
+            });
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+        CursorLoader loader = new CursorLoader(getContext());
+        loader.setUri(ChuckContentProvider.CACHEABILITY_URI);
+        loader.setSelection("repeats > 0 AND source IS NULL");
+        loader.setSortOrder("repeatBytes DESC, repeats DESC");
+        return loader;
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        int urls = 0;
+        long bytes = 0;
+        long ms = 0;
+        data.moveToPosition(-1);
+        while (data.moveToNext()) {
+            CacheabilityStats stats = LocalCupboard.getInstance().withCursor(data).get(CacheabilityStats.class);
+            urls++;
+            bytes += stats.getRepeatBytes();
+            ms += stats.getRepeatMs();
+        }
+        summary.setText((urls > 0) ?
+                getString(R.string.chuck_cacheability_summary, urls, FormatUtils.formatByteCount(bytes, true),
+                        ms / 1000f) :
+                getString(R.string.chuck_cacheability_none));
+        adapter.swapCursor(data);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Cursor> loader) {
+        adapter.swapCursor(null);
+    }
+
+    private String getAdvice(CacheabilityStats stats) {
+        String bytes = FormatUtils.formatByteCount(stats.getRepeatBytes(), true);
+        if (stats.hasFreshness()) {
+            return getString(R.string.chuck_cacheability_add_cache, bytes, stats.getRepeatMs() / 1000f);
+        } else if (stats.hasValidators()) {
+            return getString(R.string.chuck_cacheability_conditional, bytes);
+        }
+        return getString(R.string.chuck_cacheability_uncacheable, bytes, stats.getRepeatMs() / 1000f);
+    }
+
+    private class Adapter extends CursorRecyclerAdapter<ViewHolder> {
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new ViewHolder(LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.chuck_list_item_finding, parent, false));
+        }
+
+        @Override
+        protected void onBindViewHolder(ViewHolder holder, Cursor cursor) {
+            CacheabilityStats stats = LocalCupboard.getInstance().withCursor(cursor).get(CacheabilityStats.class);
+            Uri uri = Uri.parse(stats.getUrl());
+            String query = uri.getEncodedQuery();
+            holder.endpoint.setText("GET " + uri.getEncodedPath() + ((query != null) ? "?" + query : ""));
+            holder.host.setText(stats.getHost());
+            holder.detail.setText(getString(R.string.chuck_cacheability_repeats, stats.getRepeats(),
+                    stats.getFetches()) + "\n" + getAdvice(stats));
+        }
+    }
+
+    private static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView endpoint;
+        final TextView host;
+        final TextView detail;
+
+        ViewHolder(View view) {
+            super(view);
+            endpoint = (TextView) view.findViewById(R.id.endpoint);
+            host = (TextView) view.findViewById(R.id.host);
+            detail = (TextView) view.findViewById(R.id.detail);
+        }
+    }
+}
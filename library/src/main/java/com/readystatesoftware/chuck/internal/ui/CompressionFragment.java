@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.AsyncTaskLoader;
+import android.support.v4.content.Loader;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.support.CompressionAnalyzer;
+import com.readystatesoftware.chuck.internal.support.FormatUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Endpoints serving large uncompressed text, ordered by the bandwidth compression would save.
+ */
+public class CompressionFragment extends Fragment
+        implements LoaderManager.LoaderCallbacks<CompressionAnalyzer.Result> {
+
+    private TextView summary;
+    private Adapter adapter;
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.chuck_fragment_findings, container, false);
+        summary = (TextView) view.findViewById(R.id.summary);
+        RecyclerView recyclerView = (RecyclerView) view.findViewById(R.id.list);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.addItemDecoration(new DividerItemDecoration(getContext(), DividerItemDecoration.VERTICAL));
+        adapter = new Adapter();
+        recyclerView.setAdapter(adapter);
+        return view;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        getLoaderManager().initLoader(0, null, this);
+    }
+
+    @Override
+    public Loader<CompressionAnalyzer.Result> onCreateLoader(int id, Bundle args) {
+        return new AnalysisLoader(getContext());
+    }
+
+    @Override
+    public void onLoadFinished(Loader<CompressionAnalyzer.Result> loader, CompressionAnalyzer.Result result) {
+        if (result.analysedCalls == 0) {
+            summary.setText(R.string.chuck_compression_no_data);
+        } else if (result.findings.isEmpty()) {
+            summary.setText(getString(R.string.chuck_compression_none, result.analysedCalls,
+                    FormatUtils.formatByteCount(result.analysedWireBytes, true)));
+        } else {
+            summary.setText(getString(R.string.chuck_compression_summary, result.analysedCalls,
+                    FormatUtils.formatByteCount(result.analysedWireBytes, true),
+                    FormatUtils.formatByteCount(result.savedBytes, true)));
+        }
+        adapter.setFindings(result.findings);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<CompressionAnalyzer.Result> loader) {
+        adapter.setFindings(Collections.<CompressionAnalyzer.Finding>emptyList());
+    }
+
+    private static class AnalysisLoader extends AsyncTaskLoader<CompressionAnalyzer.Result> {
+
+        private CompressionAnalyzer.Result result;
+
+        AnalysisLoader(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onStartLoading() {
+            if (result != null) {
+                deliverResult(result);
+            } else {
+                forceLoad();
+            }
+        }
+
+        @Override
+        public CompressionAnalyzer.Result loadInBackground() {
+            return CompressionAnalyzer.analyse(getContext());
+        }
+
+        @Override
+        public void deliverResult(CompressionAnalyzer.Result data) {
+            result = data;
+            super.deliverResult(data);
+        }
+    }
+
+    private class Adapter extends RecyclerView.Adapter<ViewHolder> {
+
+        private List<CompressionAnalyzer.Finding> findings = Collections.emptyList();
+
+        void setFindings(List<CompressionAnalyzer.Finding> findings) {
+            this.findings = findings;
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new ViewHolder(LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.chuck_list_item_finding, parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            CompressionAnalyzer.Finding finding = findings.get(position);
+            holder.endpoint.setText(finding.method + " " + finding.template);
+            holder.host.setText(finding.host);
+            int percent = (finding.wireBytes > 0) ? (int) (finding.savedBytes * 100 / finding.wireBytes) : 0;
+            holder.detail.setText(getString(finding.measured ? R.string.chuck_compression_finding :
+                            R.string.chuck_compression_finding_estimated,
+                    finding.calls, FormatUtils.formatByteCount(finding.wireBytes, true), finding.contentType,
+                    FormatUtils.formatByteCount(finding.savedBytes, true), percent));
+        }
+
+        @Override
+        public int getItemCount() {
+            return findings.size();
+        }
+    }
+
+    private static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView endpoint;
+        final TextView host;
+        final TextView detail;
+
+        ViewHolder(View view) {
+            super(view);
+            endpoint = (TextView) view.findViewById(R.id.endpoint);
+            host = (TextView) view.findViewById(R.id.host);
+            detail = (TextView) view.findViewById(R.id.detail);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.database.Cursor;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A RecyclerView adapter over a cursor delivered by a loader.
+ */
+abstract class CursorRecyclerAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private Cursor cursor;
+
+    protected abstract void onBindViewHolder(VH holder, Cursor cursor);
+
+    @Override
+    public void onBindViewHolder(VH holder, int position) {
+        cursor.moveToPosition(position);
+        onBindViewHolder(holder, cursor);
+    }
+
+    @Override
+    public int getItemCount() {
+        return (cursor != null) ? cursor.getCount() : 0;
+    }
+
+    void swapCursor(Cursor newCursor) {
+        cursor = newCursor;
+        notifyDataSetChanged();
+    }
+}
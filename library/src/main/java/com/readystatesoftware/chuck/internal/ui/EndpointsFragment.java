@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.content.Loader;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.EndpointStats;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+import com.readystatesoftware.chuck.internal.support.ChuckExecutor;
+import com.readystatesoftware.chuck.internal.support.LatencyHistogram;
+
+/**
+ * Latency percentiles and error rates per endpoint template, busiest first.
+ */
+public class EndpointsFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+
+    private Adapter adapter;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setHasOptionsMenu(true);
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        RecyclerView recyclerView = (RecyclerView) inflater.inflate(R.layout.chuck_fragment_stats_list, container, false);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.addItemDecoration(new DividerItemDecoration(getContext(), DividerItemDecoration.VERTICAL));
+        adapter = new Adapter();
+        recyclerView.setAdapter(adapter);
+        return recyclerView;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        getLoaderManager().initLoader(0, null, this);
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        menu.add(Menu.NONE, R.id.reset_stats, Menu.NONE, R.string.chuck_reset);
+        super.onCreateOptionsMenu(menu, inflater);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.reset_stats) {
+            final Context context = getContext().getApplicationContext();
+            ChuckExecutor.write(new Runnable() {
+                @Override
+                public void run() {
+                    context.getContentResolver().delete(ChuckContentProvider.ENDPOINT_URI, "source IS NULL", null);
+                }
+            });
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+        CursorLoader loader = new CursorLoader(getContext());
+        loader.setUri(ChuckContentProvider.ENDPOINT_URI);
+        loader.setSelection("source IS NULL");
+        loader.setSortOrder("count DESC");
+        return loader;
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        adapter.swapCursor(data);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Cursor> loader) {
+        adapter.swapCursor(null);
+    }
+
+    private class Adapter extends CursorRecyclerAdapter<ViewHolder> {
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new ViewHolder(LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.chuck_list_item_endpoint, parent, false));
+        }
+
+        @Override
+        protected void onBindViewHolder(ViewHolder holder, Cursor cursor) {
+            EndpointStats stats = LocalCupboard.getInstance().withCursor(cursor).get(EndpointStats.class);
+            LatencyHistogram histogram = stats.getHistogram();
+            holder.endpoint.setText(stats.getMethod() + " " + stats.getTemplate());
+            holder.host.setText(stats.getHost());
+            String counts = getString(R.string.chuck_endpoint_counts, stats.getCount(), stats.getErrorRate() * 100);
+            if (stats.getCacheHitRate() > 0 || stats.getConditionalHitRate() > 0) {
+                counts += "\n" + getString(R.string.chuck_endpoint_cache, stats.getCacheHitRate() * 100,
+                        stats.getConditionalHitRate() * 100);
+            }
+            if (stats.getDuplicates() > 0 || stats.getBurstCalls() > 0) {
+                counts += "\n" + getString(R.string.chuck_endpoint_redundant, stats.getDuplicates(),
+                        stats.getBurstCalls());
+            }
+            if (stats.getSampledOut() > 0) {
+                counts += "\n" + getString(R.string.chuck_endpoint_sampled_out, stats.getSampledOut());
+            }
+            holder.counts.setText(counts);
+            holder.latency.setText(getString(R.string.chuck_endpoint_latency,
+                    Math.min(histogram.getPercentile(0.5), stats.getMaxMs()),
+                    Math.min(histogram.getPercentile(0.9), stats.getMaxMs()),
+                    Math.min(histogram.getPercentile(0.99), stats.getMaxMs()),
+                    stats.getMaxMs()));
+        }
+    }
+
+    private static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView endpoint;
+        final TextView host;
+        final TextView counts;
+        final TextView latency;
+
+        ViewHolder(View view) {
+            super(view);
+            endpoint = (TextView) view.findViewById(R.id.endpoint);
+            host = (TextView) view.findViewById(R.id.host);
+            counts = (TextView) view.findViewById(R.id.counts);
+            latency = (TextView) view.findViewById(R.id.latency);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+import android.widget.Toast;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.support.ChuckFileProvider;
+import com.readystatesoftware.chuck.internal.support.HarExporter;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Exports transactions to a HAR file in the background and offers it through a share intent.
+ */
+class HarExportTask extends ProgressTask<File> {
+
+    private static final String LOG_TAG = "Chuck";
+
+    private final String selection;
+    private final String[] selectionArgs;
+    private final boolean gzip;
+
+    HarExportTask(Context context, String selection, String[] selectionArgs, boolean gzip) {
+        super(context, R.string.chuck_exporting);
+        this.selection = selection;
+        this.selectionArgs = selectionArgs;
+        this.gzip = gzip;
+    }
+
+    @Override
+    protected File doInBackground(Void... params) {
+        String name = "chuck-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date())
+                + (gzip ? ".har.gz" : ".har");
+        File file = new File(ChuckFileProvider.getShareDir(context), name);
+        try {
+            HarExporter.export(context, file, selection, selectionArgs, gzip, this);
+            return file;
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "HAR export failed", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    @Override
+    protected void onFinished(File file) {
+        if (file == null) {
+            Toast.makeText(context, R.string.chuck_export_failed, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent sendIntent = new Intent(Intent.ACTION_SEND);
+        sendIntent.setType(gzip ? "application/gzip" : "application/json");
+        sendIntent.putExtra(Intent.EXTRA_STREAM, ChuckFileProvider.getUri(context, file));
+        sendIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        Intent chooser = Intent.createChooser(sendIntent, context.getString(R.string.chuck_export_har));
+        chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        context.startActivity(chooser);
+    }
+}
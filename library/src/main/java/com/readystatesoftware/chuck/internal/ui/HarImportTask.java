@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.widget.Toast;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.support.HarImporter;
+
+/**
+ * Imports a HAR file in the background.
+ */
+class HarImportTask extends ProgressTask<Integer> {
+
+    private static final String LOG_TAG = "Chuck";
+
+    private final Uri uri;
+
+    HarImportTask(Context context, Uri uri) {
+        super(context, R.string.chuck_importing);
+        this.uri = uri;
+    }
+
+    @Override
+    protected Integer doInBackground(Void... params) {
+        try {
+            return HarImporter.importHar(context, uri, this);
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "HAR import failed", e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void onFinished(Integer imported) {
+        if (imported == null) {
+            Toast.makeText(context, R.string.chuck_import_failed, Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(context, context.getResources().getQuantityString(R.plurals.chuck_imported,
+                    imported, imported), Toast.LENGTH_SHORT).show();
+        }
+    }
+}
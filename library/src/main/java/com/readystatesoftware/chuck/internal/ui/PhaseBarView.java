@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.support.PhaseTimings;
+
+/**
+ * Draws the phases of one call on a timeline running from the start to the end of the call.
+ */
+public class PhaseBarView extends View {
+
+    private static final int[] PHASE_COLORS = {
+            R.color.chuck_phase_queue,
+            R.color.chuck_phase_dns,
+            R.color.chuck_phase_connect,
+            R.color.chuck_phase_tls,
+            R.color.chuck_phase_request,
+            R.color.chuck_phase_waiting,
+            R.color.chuck_phase_response
+    };
+
+    private final Paint[] paints = new Paint[PhaseTimings.PHASES];
+    private final Paint trackPaint = new Paint();
+    private PhaseTimings timings;
+
+    public PhaseBarView(Context context) {
+        this(context, null);
+    }
+
+    public PhaseBarView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        for (int i = 0; i < PhaseTimings.PHASES; i++) {
+            paints[i] = new Paint();
+            paints[i].setColor(getPhaseColor(context, i));
+        }
+        trackPaint.setColor(ContextCompat.getColor(context, R.color.chuck_status_requested));
+    }
+
+    static int getPhaseColor(Context context, int phase) {
+        return ContextCompat.getColor(context, PHASE_COLORS[phase]);
+    }
+
+    void setTimings(PhaseTimings timings) {
+        this.timings = timings;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float top = getPaddingTop();
+        float bottom = getHeight() - getPaddingBottom();
+        if (timings == null || width <= 0) {
+            return;
+        }
+        int total = timings.getTotalUs();
+        if (total <= 0) {
+            return;
+        }
+        float middle = (top + bottom) / 2;
+        canvas.drawRect(getPaddingLeft(), middle - 1, getPaddingLeft() + width, middle + 1, trackPaint);
+        for (int i = 0; i < PhaseTimings.PHASES; i++) {
+            int duration = timings.getPhaseUs(i);
+            if (duration < 0) {
+                continue;
+            }
+            float left = getPaddingLeft() + (float) width * timings.getPhaseStartUs(i) / total;
+            // keep very short phases visible
+            float right = Math.max(left + 2, left + (float) width * duration / total);
+            canvas.drawRect(left, top, right, bottom, paints[i]);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.app.ProgressDialog;
+import android.content.Context;
+import android.os.AsyncTask;
+
+import com.readystatesoftware.chuck.internal.support.ProgressListener;
+
+/**
+ * Runs an export or import in the background behind a progress dialog.
+ */
+abstract class ProgressTask<Result> extends AsyncTask<Void, Integer, Result> implements ProgressListener {
+
+    protected final Context context;
+    private final ProgressDialog dialog;
+    private int lastPercent = -1;
+
+    ProgressTask(Context context, int messageResId) {
+        this.context = context.getApplicationContext();
+        dialog = new ProgressDialog(context);
+        dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        dialog.setMessage(context.getString(messageResId));
+        dialog.setMax(100);
+        dialog.setCancelable(false);
+    }
+
+    protected abstract void onFinished(Result result);
+
+    @Override
+    protected void onPreExecute() {
+        dialog.show();
+    }
+
+    @Override
+    public void onProgress(int done, int total) {
+        int percent = (total > 0) ? (int) (100L * done / total) : 100;
+        if (percent != lastPercent) {
+            lastPercent = percent;
+            publishProgress(percent);
+        }
+    }
+
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        dialog.setProgress(values[0]);
+    }
+
+    @Override
+    protected void onPostExecute(Result result) {
+        if (dialog.isShowing()) {
+            try {
+                dialog.dismiss();
+            } catch (IllegalArgumentException ignored) {
+                // the activity went away while the task ran
+            }
+        }
+        onFinished(result);
+    }
+}
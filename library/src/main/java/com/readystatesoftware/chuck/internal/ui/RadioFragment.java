@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.content.Loader;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+import com.readystatesoftware.chuck.internal.data.RadioPeriod;
+import com.readystatesoftware.chuck.internal.data.RadioPeriods;
+import com.readystatesoftware.chuck.internal.support.FormatUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Radio wake-ups over the last day, and the endpoints that woke the radio on their own.
+ */
+public class RadioFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+
+    private static final long RANGE = TimeUnit.DAYS.toMillis(1);
+
+    private TextView summary;
+    private Adapter adapter;
+
+    /**
+     * Isolated wake-ups caused by one endpoint.
+     */
+    private static class EndpointWakeups {
+        final String endpoint;
+        final String host;
+        int wakeups;
+        long bytes;
+
+        EndpointWakeups(String endpoint, String host) {
+            this.endpoint = endpoint;
+            this.host = host;
+        }
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.chuck_fragment_findings, container, false);
+        summary = (TextView) view.findViewById(R.id.summary);
+        RecyclerView recyclerView = (RecyclerView) view.findViewById(R.id.list);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.addItemDecoration(new DividerItemDecoration(getContext(), DividerItemDecoration.VERTICAL));
+        adapter = new Adapter();
+        recyclerView.setAdapter(adapter);
+        return view;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        getLoaderManager().initLoader(0, null, this);
+    }
+
+    @Override
+    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+        CursorLoader loader = new CursorLoader(getContext());
+        loader.setUri(ChuckContentProvider.RADIO_URI);
+        loader.setSelection("endTime >= ? AND source IS NULL");
+        loader.setSelectionArgs(new String[] { String.valueOf(System.currentTimeMillis() - RANGE) });
+        return loader;
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        long tailMs = RadioPeriods.getTailMs();
+        int wakeups = 0;
+        int isolated = 0;
+        int calls = 0;
+        long activeMs = 0;
+        Map<String, EndpointWakeups> byEndpoint = new HashMap<>();
+        data.moveToPosition(-1);
+        while (data.moveToNext()) {
+            RadioPeriod period = LocalCupboard.getInstance().withCursor(data).get(RadioPeriod.class);
+            wakeups++;
+            calls += period.getCalls();
+            activeMs += period.getEnd() - period.getStart() + tailMs;
+            if (period.isIsolated()) {
+                isolated++;
+                EndpointWakeups endpoint = byEndpoint.get(period.getEndpoint());
+                if (endpoint == null) {
+                    endpoint = new EndpointWakeups(period.getEndpoint(), period.getHost());
+                    byEndpoint.put(period.getEndpoint(), endpoint);
+                }
+                endpoint.wakeups++;
+                endpoint.bytes += period.getBytes();
+            }
+        }
+        List<EndpointWakeups> endpoints = new ArrayList<>(byEndpoint.values());
+        Collections.sort(endpoints, new Comparator<EndpointWakeups>() {
+            @Override
+            public int compare(EndpointWakeups a, EndpointWakeups b) {
+                return b.wakeups - a.wakeups;
+            }
+        });
+        summary.setText((wakeups > 0) ?
+                getString(R.string.chuck_radio_summary, calls, wakeups, activeMs / 1000f, isolated,
+                        tailMs / 1000f) :
+                getString(R.string.chuck_radio_none));
+        adapter.setEndpoints(endpoints);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Cursor> loader) {
+        adapter.setEndpoints(Collections.<EndpointWakeups>emptyList());
+    }
+
+    /**
+     * @return "METHOD /template" from an endpoint key of the form "METHOD host/template".
+     */
+    private static String withoutHost(String endpoint, String host) {
+        int space = endpoint.indexOf(' ');
+        if (space < 0 || host == null || !endpoint.startsWith(host, space + 1)) {
+            return endpoint;
+        }
+        return endpoint.substring(0, space + 1) + endpoint.substring(space + 1 + host.length());
+    }
+
+    private class Adapter extends RecyclerView.Adapter<ViewHolder> {
+
+        private List<EndpointWakeups> endpoints = Collections.emptyList();
+
+        void setEndpoints(List<EndpointWakeups> endpoints) {
+            this.endpoints = endpoints;
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new ViewHolder(LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.chuck_list_item_finding, parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            EndpointWakeups endpoint = endpoints.get(position);
+            holder.endpoint.setText(withoutHost(endpoint.endpoint, endpoint.host));
+            holder.host.setText(endpoint.host);
+            holder.detail.setText(getString(R.string.chuck_radio_endpoint, endpoint.wakeups,
+                    FormatUtils.formatByteCount(endpoint.bytes, true)));
+        }
+
+        @Override
+        public int getItemCount() {
+            return endpoints.size();
+        }
+    }
+
+    private static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView endpoint;
+        final TextView host;
+        final TextView detail;
+
+        ViewHolder(View view) {
+            super(view);
+            endpoint = (TextView) view.findViewById(R.id.endpoint);
+            host = (TextView) view.findViewById(R.id.host);
+            detail = (TextView) view.findViewById(R.id.detail);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.util.Log;
+import android.widget.Toast;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.support.ChuckFileProvider;
+import com.readystatesoftware.chuck.internal.support.FormatUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Writes a transaction as text or as a curl command to a cache file in the background and shares
+ * it by content URI, so that large bodies never go through an Intent extra.
+ */
+class ShareTask extends AsyncTask<Void, Void, ArrayList<Uri>> {
+
+    static final int TEXT = 0;
+    static final int CURL = 1;
+
+    private static final String LOG_TAG = "Chuck";
+    // request bodies longer than this go in a separate file for curl --data-binary
+    private static final int MAX_INLINE_CURL_BODY = 1024;
+
+    private final Context context;
+    private final HttpTransaction transaction;
+    private final int format;
+
+    ShareTask(Context context, HttpTransaction transaction, int format) {
+        this.context = context.getApplicationContext();
+        this.transaction = transaction;
+        this.format = format;
+    }
+
+    @Override
+    protected ArrayList<Uri> doInBackground(Void... params) {
+        File dir = ChuckFileProvider.getShareDir(context);
+        String name = "chuck-" + transaction.getId();
+        ArrayList<Uri> uris = new ArrayList<>(2);
+        try {
+            if (format == CURL) {
+                String bodyFileName = null;
+                byte[] body = transaction.getRequestBodyBytes();
+                if (body != null && body.length > MAX_INLINE_CURL_BODY) {
+                    bodyFileName = name + "-body.bin";
+                    File bodyFile = new File(dir, bodyFileName);
+                    FileOutputStream out = new FileOutputStream(bodyFile);
+                    try {
+                        out.write(body);
+                    } finally {
+                        out.close();
+                    }
+                    uris.add(ChuckFileProvider.getUri(context, bodyFile));
+                }
+                File file = new File(dir, name + "-curl.txt");
+                Writer writer = openWriter(file);
+                try {
+                    FormatUtils.writeShareCurlCommand(transaction, writer, bodyFileName);
+                } finally {
+                    writer.close();
+                }
+                uris.add(0, ChuckFileProvider.getUri(context, file));
+            } else {
+                File file = new File(dir, name + ".txt");
+                Writer writer = openWriter(file);
+                try {
+                    FormatUtils.writeShareText(context, transaction, writer);
+                } finally {
+                    writer.close();
+                }
+                uris.add(ChuckFileProvider.getUri(context, file));
+            }
+            return uris;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to write share file", e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void onPostExecute(ArrayList<Uri> uris) {
+        if (uris == null) {
+            Toast.makeText(context, R.string.chuck_export_failed, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent sendIntent;
+        if (uris.size() == 1) {
+            sendIntent = new Intent(Intent.ACTION_SEND);
+            sendIntent.putExtra(Intent.EXTRA_STREAM, uris.get(0));
+        } else {
+            sendIntent = new Intent(Intent.ACTION_SEND_MULTIPLE);
+            sendIntent.putParcelableArrayListExtra(Intent.EXTRA_STREAM, uris);
+        }
+        sendIntent.setType("text/plain");
+        sendIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        Intent chooser = Intent.createChooser(sendIntent, null);
+        chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        context.startActivity(chooser);
+    }
+
+    private static Writer openWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.Toolbar;
+import android.view.MenuItem;
+
+import com.readystatesoftware.chuck.R;
+
+/**
+ * Hosts the screens that show aggregate statistics rather than single transactions.
+ */
+public class StatsActivity extends BaseChuckActivity {
+
+    static final int SCREEN_ENDPOINTS = 0;
+    static final int SCREEN_TRAFFIC = 1;
+    static final int SCREEN_COMPRESSION = 2;
+    static final int SCREEN_CACHEABILITY = 3;
+    static final int SCREEN_REDUNDANT = 4;
+    static final int SCREEN_RADIO = 5;
+    static final int SCREEN_WATERFALL = 6;
+
+    private static final String ARG_SCREEN = "screen";
+
+    static void start(Context context, int screen) {
+        Intent intent = new Intent(context, StatsActivity.class);
+        intent.putExtra(ARG_SCREEN, screen);
+        context.startActivity(intent);
+    }
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.chuck_activity_main);
+        Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        int screen = getIntent().getIntExtra(ARG_SCREEN, SCREEN_ENDPOINTS);
+        setTitle(getTitle(screen));
+        if (savedInstanceState == null) {
+            getSupportFragmentManager().beginTransaction()
+                    .add(R.id.container, createFragment(screen))
+                    .commit();
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private static int getTitle(int screen) {
+        switch (screen) {
+            case SCREEN_TRAFFIC:
+                return R.string.chuck_traffic;
+            case SCREEN_COMPRESSION:
+                return R.string.chuck_compression;
+            case SCREEN_CACHEABILITY:
+                return R.string.chuck_cacheability;
+            case SCREEN_REDUNDANT:
+                return R.string.chuck_redundant;
+            case SCREEN_RADIO:
+                return R.string.chuck_radio;
+            case SCREEN_WATERFALL:
+                return R.string.chuck_waterfall;
+            default:
+                return R.string.chuck_endpoints;
+        }
+    }
+
+    private static Fragment createFragment(int screen) {
+        switch (screen) {
+            case SCREEN_TRAFFIC:
+                return new TrafficFragment();
+            case SCREEN_COMPRESSION:
+                return new CompressionFragment();
+            case SCREEN_CACHEABILITY:
+                return new CacheabilityFragment();
+            case SCREEN_REDUNDANT:
+                return new RedundantCallsFragment();
+            case SCREEN_RADIO:
+                return new RadioFragment();
+            case SCREEN_WATERFALL:
+                return new WaterfallFragment();
+            default:
+                return new EndpointsFragment();
+        }
+    }
+}
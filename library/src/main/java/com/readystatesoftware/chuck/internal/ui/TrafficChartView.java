@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.readystatesoftware.chuck.R;
+
+/**
+ * A bar per interval showing the request count, with the share of errors drawn on top.
+ */
+public class TrafficChartView extends View {
+
+    private final Paint countPaint = new Paint();
+    private final Paint errorPaint = new Paint();
+    private long[] counts = new long[0];
+    private long[] errors = new long[0];
+
+    public TrafficChartView(Context context) {
+        this(context, null);
+    }
+
+    public TrafficChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        countPaint.setColor(ContextCompat.getColor(context, R.color.chuck_colorPrimary));
+        errorPaint.setColor(ContextCompat.getColor(context, R.color.chuck_status_error));
+    }
+
+    void setData(long[] counts, long[] errors) {
+        this.counts = counts;
+        this.errors = errors;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        int height = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (counts.length == 0 || width <= 0 || height <= 0) {
+            return;
+        }
+        long max = 0;
+        for (long count : counts) {
+            max = Math.max(max, count);
+        }
+        if (max == 0) {
+            return;
+        }
+        float barWidth = (float) width / counts.length;
+        float gap = (barWidth > 4) ? 1 : 0;
+        float bottom = getPaddingTop() + height;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            float left = getPaddingLeft() + i * barWidth;
+            float right = left + barWidth - gap;
+            float top = bottom - (float) height * counts[i] / max;
+            canvas.drawRect(left, top, right, bottom, countPaint);
+            if (errors[i] > 0) {
+                canvas.drawRect(left, top, right, top + (bottom - top) * errors[i] / counts[i], errorPaint);
+            }
+        }
+    }
+}
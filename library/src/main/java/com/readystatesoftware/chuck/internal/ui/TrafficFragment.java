@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.database.Cursor;
+import android.graphics.Typeface;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.content.Loader;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.HourRollup;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+import com.readystatesoftware.chuck.internal.data.MinuteRollup;
+import com.readystatesoftware.chuck.internal.data.TrafficRollup;
+import com.readystatesoftware.chuck.internal.support.FormatUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request volume over time, read only from the rollup tables so that long ranges stay cheap.
+ */
+public class TrafficFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+
+    private static final String STATE_RANGE = "range";
+    private static final long MIN_SATURATION_SAMPLES = 20;
+
+    private static final long[] RANGES = {
+            TimeUnit.HOURS.toMillis(1),
+            TimeUnit.DAYS.toMillis(1),
+            TimeUnit.DAYS.toMillis(7),
+            TimeUnit.DAYS.toMillis(30)
+    };
+
+    private int range;
+    private TrafficChartView chart;
+    private TextView summary;
+    private TextView hosts;
+
+    /**
+     * Totals for one host over the selected range.
+     */
+    private static class HostTotals {
+        final String host;
+        long count;
+        long errors;
+        long bytesUp;
+        long bytesDown;
+        long samples;
+        long saturatedSamples;
+        long queuedCalls;
+        long queueTimeCount;
+        long queueTimeMs;
+        long reusedConnectionCalls;
+        long newConnectionCalls;
+        long tlsHandshakes;
+        long tlsResumptions;
+
+        HostTotals(String host) {
+            this.host = host;
+        }
+    }
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setHasOptionsMenu(true);
+        if (savedInstanceState != null) {
+            range = savedInstanceState.getInt(STATE_RANGE);
+        }
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.chuck_fragment_traffic, container, false);
+        chart = (TrafficChartView) view.findViewById(R.id.chart);
+        summary = (TextView) view.findViewById(R.id.summary);
+        hosts = (TextView) view.findViewById(R.id.hosts);
+        return view;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        getLoaderManager().initLoader(0, null, this);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_RANGE, range);
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        inflater.inflate(R.menu.chuck_traffic, menu);
+        super.onCreateOptionsMenu(menu, inflater);
+    }
+
+    @Override
+    public void onPrepareOptionsMenu(Menu menu) {
+        super.onPrepareOptionsMenu(menu);
+        MenuItem item = menu.findItem(getRangeItemId(range));
+        if (item != null) {
+            item.setChecked(true);
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        for (int i = 0; i < RANGES.length; i++) {
+            if (item.getItemId() == getRangeItemId(i)) {
+                range = i;
+                item.setChecked(true);
+                getLoaderManager().restartLoader(0, null, this);
+                return true;
+            }
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private static int getRangeItemId(int range) {
+        switch (range) {
+            case 0:
+                return R.id.range_hour;
+            case 1:
+                return R.id.range_day;
+            case 2:
+                return R.id.range_week;
+            default:
+                return R.id.range_month;
+        }
+    }
+
+    /**
+     * The last hour is charted by minute; longer ranges by hour.
+     */
+    private long getInterval() {
+        return (range == 0) ? MinuteRollup.INTERVAL : HourRollup.INTERVAL;
+    }
+
+    @Override
+    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+        long interval = getInterval();
+        long now = System.currentTimeMillis();
+        long rangeStart = now - (now % interval) - RANGES[range] + interval;
+        Uri uri = (range == 0) ? ChuckContentProvider.MINUTE_ROLLUP_URI : ChuckContentProvider.HOUR_ROLLUP_URI;
+        CursorLoader loader = new CursorLoader(getContext());
+        loader.setUri(uri);
+        loader.setSelection("bucket >= ? AND source IS NULL");
+        loader.setSelectionArgs(new String[] { String.valueOf(rangeStart) });
+        return loader;
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        Class<? extends TrafficRollup> type = (range == 0) ? MinuteRollup.class : HourRollup.class;
+        long interval = getInterval();
+        long rangeStart = Long.parseLong(((CursorLoader) loader).getSelectionArgs()[0]);
+        int buckets = (int) (RANGES[range] / interval);
+        long[] counts = new long[buckets];
+        long[] errors = new long[buckets];
+        long count = 0;
+        long errorCount = 0;
+        long bytesUp = 0;
+        long bytesDown = 0;
+        long totalMs = 0;
+        Map<String, HostTotals> byHost = new HashMap<>();
+        data.moveToPosition(-1);
+        while (data.moveToNext()) {
+            TrafficRollup rollup = LocalCupboard.getInstance().withCursor(data).get(type);
+            int index = (int) ((rollup.getBucket() - rangeStart) / interval);
+            if (index >= 0 && index < buckets) {
+                counts[index] += rollup.getCount();
+                errors[index] += rollup.getErrors();
+            }
+            count += rollup.getCount();
+            errorCount += rollup.getErrors();
+            bytesUp += rollup.getBytesUp();
+            bytesDown += rollup.getBytesDown();
+            totalMs += rollup.getTotalMs();
+            HostTotals totals = byHost.get(rollup.getHost());
+            if (totals == null) {
+                totals = new HostTotals(rollup.getHost());
+                byHost.put(rollup.getHost(), totals);
+            }
+            totals.count += rollup.getCount();
+            totals.errors += rollup.getErrors();
+            totals.bytesUp += rollup.getBytesUp();
+            totals.bytesDown += rollup.getBytesDown();
+            totals.samples += rollup.getSamples();
+            totals.saturatedSamples += rollup.getSaturatedSamples();
+            totals.queuedCalls += rollup.getQueuedCalls();
+            totals.queueTimeCount += rollup.getQueueTimeCount();
+            totals.queueTimeMs += rollup.getQueueTimeMs();
+            totals.reusedConnectionCalls += rollup.getReusedConnectionCalls();
+            totals.newConnectionCalls += rollup.getNewConnectionCalls();
+            totals.tlsHandshakes += rollup.getTlsHandshakes();
+            totals.tlsResumptions += rollup.getTlsResumptions();
+        }
+        chart.setData(counts, errors);
+        summary.setText(getString(R.string.chuck_traffic_summary, count, errorCount,
+                FormatUtils.formatByteCount(bytesUp, true), FormatUtils.formatByteCount(bytesDown, true),
+                (count > 0) ? totalMs / count : 0));
+        hosts.setText(formatHosts(byHost));
+    }
+
+    private CharSequence formatHosts(Map<String, HostTotals> byHost) {
+        List<HostTotals> totals = new ArrayList<>(byHost.values());
+        Collections.sort(totals, new Comparator<HostTotals>() {
+            @Override
+            public int compare(HostTotals a, HostTotals b) {
+                return (a.count < b.count) ? 1 : ((a.count == b.count) ? 0 : -1);
+            }
+        });
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        for (HostTotals host : totals) {
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            if (isSaturated(host)) {
+                int start = text.length();
+                text.append(getString(R.string.chuck_traffic_saturated));
+                text.setSpan(new ForegroundColorSpan(ContextCompat.getColor(getContext(), R.color.chuck_status_error)),
+                        start, text.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                text.setSpan(new StyleSpan(Typeface.BOLD), start, text.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                text.append(' ');
+            }
+            text.append(getString(R.string.chuck_traffic_host, host.host, host.count, host.errors,
+                    FormatUtils.formatByteCount(host.bytesUp, true),
+                    FormatUtils.formatByteCount(host.bytesDown, true)));
+            if (host.samples > 0) {
+                text.append('\n').append(getString(R.string.chuck_traffic_saturation,
+                        100 * host.saturatedSamples / host.samples, (float) host.queuedCalls / host.samples));
+            }
+            if (host.queueTimeCount > 0) {
+                text.append('\n').append(getString(R.string.chuck_traffic_queue_time,
+                        host.queueTimeMs / host.queueTimeCount));
+            }
+            long connectionCalls = host.reusedConnectionCalls + host.newConnectionCalls;
+            if (connectionCalls > 0) {
+                text.append('\n').append(getString(R.string.chuck_traffic_connection_reuse,
+                        100 * host.reusedConnectionCalls / connectionCalls, host.newConnectionCalls));
+            }
+            if (host.tlsHandshakes > 0) {
+                text.append('\n').append(getString(R.string.chuck_traffic_tls_resumed,
+                        host.tlsResumptions, host.tlsHandshakes));
+            }
+        }
+        return text;
+    }
+
+    /**
+     * A host is flagged when calls to it were waiting in the dispatcher in at least half of
+     * the samples, over enough samples that a single burst does not count.
+     */
+    private static boolean isSaturated(HostTotals host) {
+        return host.samples >= MIN_SATURATION_SAMPLES && host.saturatedSamples * 2 >= host.samples;
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Cursor> loader) {
+    }
+}
@@ -40,7 +40,6 @@ import com.readystatesoftware.chuck.R;
 import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
 import com.readystatesoftware.chuck.internal.data.HttpTransaction;
 import com.readystatesoftware.chuck.internal.data.LocalCupboard;
-import com.readystatesoftware.chuck.internal.support.FormatUtils;
 import com.readystatesoftware.chuck.internal.support.SimpleOnPageChangedListener;
 
 import java.util.ArrayList;
@@ -107,10 +106,10 @@ public class TransactionActivity extends BaseChuckActivity implements LoaderMana
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == R.id.share_text) {
-            share(FormatUtils.getShareText(this, transaction));
+            share(ShareTask.TEXT);
             return true;
         } else if (item.getItemId() == R.id.share_curl) {
-            share(FormatUtils.getShareCurlCommand(transaction));
+            share(ShareTask.CURL);
             return true;
         } else {
             return super.onOptionsItemSelected(item);
@@ -148,6 +147,7 @@ public class TransactionActivity extends BaseChuckActivity implements LoaderMana
         adapter.addFragment(new TransactionOverviewFragment(), getString(R.string.chuck_overview));
         adapter.addFragment(TransactionPayloadFragment.newInstance(TYPE_REQUEST), getString(R.string.chuck_request));
         adapter.addFragment(TransactionPayloadFragment.newInstance(TYPE_RESPONSE), getString(R.string.chuck_response));
+        adapter.addFragment(new TransactionHopsFragment(), getString(R.string.chuck_hops));
         viewPager.setAdapter(adapter);
         viewPager.addOnPageChangeListener(new SimpleOnPageChangedListener() {
             @Override
@@ -158,12 +158,10 @@ public class TransactionActivity extends BaseChuckActivity implements LoaderMana
         viewPager.setCurrentItem(selectedTabPosition);
     }
 
-    private void share(String content) {
-        Intent sendIntent = new Intent();
-        sendIntent.setAction(Intent.ACTION_SEND);
-        sendIntent.putExtra(Intent.EXTRA_TEXT, content);
-        sendIntent.setType("text/plain");
-        startActivity(Intent.createChooser(sendIntent, null));
+    private void share(int format) {
+        if (transaction != null) {
+            new ShareTask(this, transaction, format).execute();
+        }
     }
 
     static class Adapter extends FragmentPagerAdapter {
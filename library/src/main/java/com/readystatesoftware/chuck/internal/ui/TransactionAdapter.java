@@ -68,12 +68,12 @@ class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.ViewHol
                 final HttpTransaction transaction = LocalCupboard.getInstance().withCursor(cursor).get(HttpTransaction.class);
                 final ViewHolder holder = (ViewHolder) view.getTag();
                 holder.path.setText(transaction.getMethod() + " " + transaction.getPath());
-                holder.host.setText(transaction.getHost());
+                holder.host.setText(getHostText(context, transaction));
                 holder.start.setText(transaction.getRequestStartTimeString());
                 holder.ssl.setVisibility(transaction.isSsl() ? View.VISIBLE : View.GONE);
                 if (transaction.getStatus() == HttpTransaction.Status.Complete) {
                     holder.code.setText(String.valueOf(transaction.getResponseCode()));
-                    holder.duration.setText(transaction.getDurationString());
+                    holder.duration.setText(getDurationText(context, transaction));
                     holder.size.setText(transaction.getTotalSizeString());
                 } else {
                     holder.code.setText(null);
@@ -95,6 +95,31 @@ class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.ViewHol
                 });
             }
 
+            private String getDurationText(Context context, HttpTransaction transaction) {
+                // a cache hit's duration is not a network round trip, so say where it came from
+                if (transaction.getCacheStatus() == HttpTransaction.CacheStatus.Hit) {
+                    return context.getString(R.string.chuck_duration_cache_hit, transaction.getDurationString());
+                } else if (transaction.getCacheStatus() == HttpTransaction.CacheStatus.Conditional) {
+                    return context.getString(R.string.chuck_duration_cache_conditional, transaction.getDurationString());
+                }
+                return transaction.getDurationString();
+            }
+
+            private String getHostText(Context context, HttpTransaction transaction) {
+                String text = transaction.getHost();
+                Integer hops = transaction.getNetworkHops();
+                if (hops != null && hops > 1) {
+                    text = context.getString(R.string.chuck_host_with_hops, text,
+                            context.getResources().getQuantityString(R.plurals.chuck_network_hops, hops, hops));
+                }
+                if (transaction.getRedundancy() == HttpTransaction.Redundancy.Duplicate) {
+                    text = context.getString(R.string.chuck_host_with_hops, text, context.getString(R.string.chuck_duplicate));
+                } else if (transaction.getRedundancy() == HttpTransaction.Redundancy.Burst) {
+                    text = context.getString(R.string.chuck_host_with_hops, text, context.getString(R.string.chuck_burst));
+                }
+                return text;
+            }
+
             private void setStatusColor(ViewHolder holder, HttpTransaction transaction) {
                 int color;
                 if (transaction.getStatus() == HttpTransaction.Status.Failed) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.content.Loader;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.data.LocalCupboard;
+import com.readystatesoftware.chuck.internal.data.NetworkHop;
+import com.readystatesoftware.chuck.internal.support.FormatUtils;
+
+/**
+ * The requests that went over the network for a transaction, in order, when the client has
+ * Chuck's network interceptor.
+ */
+public class TransactionHopsFragment extends Fragment implements TransactionFragment,
+        LoaderManager.LoaderCallbacks<Cursor> {
+
+    private static final String ARG_TRANSACTION_ID = "transaction_id";
+
+    TextView summary;
+    TextView hops;
+
+    private HttpTransaction transaction;
+
+    public TransactionHopsFragment() {
+    }
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.chuck_fragment_transaction_hops, container, false);
+        summary = (TextView) view.findViewById(R.id.summary);
+        hops = (TextView) view.findViewById(R.id.hops);
+        return view;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        populateUI();
+    }
+
+    @Override
+    public void transactionUpdated(HttpTransaction transaction) {
+        this.transaction = transaction;
+        populateUI();
+    }
+
+    private void populateUI() {
+        if (!isAdded() || transaction == null || transaction.getId() == null) {
+            return;
+        }
+        Integer count = transaction.getNetworkHops();
+        if (count == null) {
+            summary.setText(R.string.chuck_no_network_hops);
+            return;
+        }
+        Integer redirects = transaction.getRedirects();
+        String requests = getResources().getQuantityString(R.plurals.chuck_network_hops, count, count);
+        summary.setText((redirects != null && redirects > 0) ?
+                getString(R.string.chuck_network_hops_redirects, requests, redirects, transaction.getRedirectMs()) :
+                requests);
+        Bundle args = new Bundle();
+        args.putLong(ARG_TRANSACTION_ID, transaction.getId());
+        getLoaderManager().restartLoader(0, args, this);
+    }
+
+    @Override
+    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+        CursorLoader loader = new CursorLoader(getContext());
+        loader.setUri(ChuckContentProvider.HOP_URI);
+        loader.setSelection("transactionId = ?");
+        loader.setSelectionArgs(new String[] { String.valueOf(args.getLong(ARG_TRANSACTION_ID)) });
+        loader.setSortOrder("hop ASC");
+        return loader;
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        StringBuilder text = new StringBuilder();
+        data.moveToPosition(-1);
+        while (data.moveToNext()) {
+            NetworkHop hop = LocalCupboard.getInstance().withCursor(data).get(NetworkHop.class);
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            text.append(hop.getHop()).append(". ");
+            if (hop.getError() != null) {
+                text.append(hop.getError());
+            } else if (hop.getResponseCode() != null) {
+                text.append(hop.getResponseCode()).append(' ').append(hop.getResponseMessage());
+            }
+            if (hop.getTookMs() != null) {
+                text.append("  ").append(hop.getTookMs()).append(" ms");
+            }
+            text.append('\n').append(hop.getMethod()).append(' ').append(hop.getUrl());
+            if (hop.isRedirect()) {
+                text.append('\n').append(getString(R.string.chuck_hop_location, hop.getLocation()));
+            }
+            if (hop.getResponseWireBytes() != null) {
+                String size = FormatUtils.formatByteCount(hop.getResponseWireBytes(), true);
+                text.append('\n').append((hop.getContentEncoding() != null) ?
+                        getString(R.string.chuck_hop_wire_size_encoded, size, hop.getContentEncoding()) :
+                        getString(R.string.chuck_hop_wire_size, size));
+            }
+        }
+        hops.setText(text);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Cursor> loader) {
+    }
+}
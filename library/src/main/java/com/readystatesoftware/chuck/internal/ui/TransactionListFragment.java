@@ -15,13 +15,18 @@
  */
 package com.readystatesoftware.chuck.internal.ui;
 
+import android.app.Activity;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.database.Cursor;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.CursorLoader;
+import android.support.v4.content.LocalBroadcastManager;
 import android.support.v4.content.Loader;
 import android.support.v7.widget.DividerItemDecoration;
 import android.support.v7.widget.LinearLayoutManager;
@@ -35,18 +40,33 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.readystatesoftware.chuck.CaptureLevel;
+import com.readystatesoftware.chuck.Chuck;
 import com.readystatesoftware.chuck.R;
 import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
 import com.readystatesoftware.chuck.internal.data.HttpTransaction;
-import com.readystatesoftware.chuck.internal.support.NotificationHelper;
+import com.readystatesoftware.chuck.internal.support.ClearTransactionsService;
 import com.readystatesoftware.chuck.internal.support.SQLiteUtils;
 
+import java.util.concurrent.TimeUnit;
+
 public class TransactionListFragment extends Fragment implements
         SearchView.OnQueryTextListener, LoaderManager.LoaderCallbacks<Cursor> {
 
+    private static final int REQUEST_IMPORT_HAR = 1;
+
     private String currentFilter;
+    private boolean importedOnly;
     private OnListFragmentInteractionListener listener;
     private TransactionAdapter adapter;
+    private View clearProgress;
+
+    private final BroadcastReceiver clearReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            updateClearProgress();
+        }
+    };
 
     public TransactionListFragment() {}
 
@@ -64,18 +84,35 @@ public class TransactionListFragment extends Fragment implements
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.chuck_fragment_transaction_list, container, false);
-        if (view instanceof RecyclerView) {
-            Context context = view.getContext();
-            RecyclerView recyclerView = (RecyclerView) view;
-            recyclerView.setLayoutManager(new LinearLayoutManager(context));
-            recyclerView.addItemDecoration(new DividerItemDecoration(getContext(),
-                    DividerItemDecoration.VERTICAL));
-            adapter = new TransactionAdapter(getContext(), listener);
-            recyclerView.setAdapter(adapter);
-        }
+        Context context = view.getContext();
+        RecyclerView recyclerView = (RecyclerView) view.findViewById(R.id.list);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        recyclerView.addItemDecoration(new DividerItemDecoration(getContext(),
+                DividerItemDecoration.VERTICAL));
+        adapter = new TransactionAdapter(getContext(), listener);
+        recyclerView.setAdapter(adapter);
+        clearProgress = view.findViewById(R.id.clear_progress);
         return view;
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        LocalBroadcastManager.getInstance(getContext()).registerReceiver(clearReceiver,
+                new IntentFilter(ClearTransactionsService.ACTION_CLEAR_FINISHED));
+        updateClearProgress();
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(clearReceiver);
+    }
+
+    private void updateClearProgress() {
+        clearProgress.setVisibility(ClearTransactionsService.isRunning() ? View.VISIBLE : View.GONE);
+    }
+
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -109,38 +146,147 @@ public class TransactionListFragment extends Fragment implements
         super.onCreateOptionsMenu(menu, inflater);
     }
 
+    @Override
+    public void onPrepareOptionsMenu(Menu menu) {
+        super.onPrepareOptionsMenu(menu);
+        MenuItem levelItem = menu.findItem(getCaptureLevelItemId(Chuck.getCaptureLevel()));
+        if (levelItem != null) {
+            levelItem.setChecked(true);
+        }
+        menu.findItem(R.id.show_imported_only).setChecked(importedOnly);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == R.id.clear) {
-            getContext().getContentResolver().delete(ChuckContentProvider.TRANSACTION_URI, null, null);
-            NotificationHelper.clearBuffer();
+            ClearTransactionsService.start(getContext());
+            clearProgress.setVisibility(View.VISIBLE);
+            return true;
+        } else if (item.getItemId() == R.id.endpoints) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_ENDPOINTS);
+            return true;
+        } else if (item.getItemId() == R.id.traffic) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_TRAFFIC);
+            return true;
+        } else if (item.getItemId() == R.id.compression) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_COMPRESSION);
+            return true;
+        } else if (item.getItemId() == R.id.cacheability) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_CACHEABILITY);
+            return true;
+        } else if (item.getItemId() == R.id.redundant) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_REDUNDANT);
+            return true;
+        } else if (item.getItemId() == R.id.radio) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_RADIO);
+            return true;
+        } else if (item.getItemId() == R.id.waterfall) {
+            StatsActivity.start(getContext(), StatsActivity.SCREEN_WATERFALL);
+            return true;
+        } else if (item.getItemId() == R.id.export_har || item.getItemId() == R.id.export_har_gzip) {
+            // export what the list currently shows
+            new HarExportTask(getContext(), getSelection(), getSelectionArgs(),
+                    item.getItemId() == R.id.export_har_gzip).execute();
+            return true;
+        } else if (item.getItemId() == R.id.import_har) {
+            Intent intent = new Intent(Intent.ACTION_GET_CONTENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType("*/*");
+            startActivityForResult(Intent.createChooser(intent, getString(R.string.chuck_import_har)),
+                    REQUEST_IMPORT_HAR);
             return true;
-        } else if (item.getItemId() == R.id.browse_sql) {
+        } else if (item.getItemId() == R.id.show_imported_only) {
+            importedOnly = !importedOnly;
+            item.setChecked(importedOnly);
+            getLoaderManager().restartLoader(0, null, this);
+            return true;
+        } else if (item.getItemId() == R.id.clear_imported) {
+            ClearTransactionsService.startClearImported(getContext());
+            clearProgress.setVisibility(View.VISIBLE);
+            return true;
+        } else if (item.getItemId() == R.id.browse_sql_all) {
             SQLiteUtils.browseDatabase(getContext());
             return true;
+        } else if (item.getItemId() == R.id.browse_sql_last_hour) {
+            SQLiteUtils.browseDatabase(getContext(), System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1), 0);
+            return true;
+        } else if (item.getItemId() == R.id.browse_sql_last_day) {
+            SQLiteUtils.browseDatabase(getContext(), System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1), 0);
+            return true;
+        } else if (getCaptureLevel(item.getItemId()) != null) {
+            Chuck.setCaptureLevel(getCaptureLevel(item.getItemId()));
+            item.setChecked(true);
+            return true;
         } else {
             return super.onOptionsItemSelected(item);
         }
     }
 
+    private static CaptureLevel getCaptureLevel(int itemId) {
+        if (itemId == R.id.capture_level_none) {
+            return CaptureLevel.NONE;
+        } else if (itemId == R.id.capture_level_metadata) {
+            return CaptureLevel.METADATA;
+        } else if (itemId == R.id.capture_level_headers) {
+            return CaptureLevel.HEADERS;
+        } else if (itemId == R.id.capture_level_body) {
+            return CaptureLevel.BODY;
+        }
+        return null;
+    }
+
+    private static int getCaptureLevelItemId(CaptureLevel level) {
+        switch (level) {
+            case NONE:
+                return R.id.capture_level_none;
+            case METADATA:
+                return R.id.capture_level_metadata;
+            case HEADERS:
+                return R.id.capture_level_headers;
+            default:
+                return R.id.capture_level_body;
+        }
+    }
+
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
         CursorLoader loader = new CursorLoader(getContext());
         loader.setUri(ChuckContentProvider.TRANSACTION_URI);
-        if (!TextUtils.isEmpty(currentFilter)) {
-            if (TextUtils.isDigitsOnly(currentFilter)) {
-                loader.setSelection("responseCode LIKE ?");
-                loader.setSelectionArgs(new String[]{ currentFilter + "%" });
-            } else {
-                loader.setSelection("path LIKE ?");
-                loader.setSelectionArgs(new String[]{ "%" + currentFilter + "%" });
-            }
-        }
+        loader.setSelection(getSelection());
+        loader.setSelectionArgs(getSelectionArgs());
         loader.setProjection(HttpTransaction.PARTIAL_PROJECTION);
         loader.setSortOrder("requestDate DESC");
         return loader;
     }
 
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode == REQUEST_IMPORT_HAR) {
+            if (resultCode == Activity.RESULT_OK && data != null && data.getData() != null) {
+                new HarImportTask(getContext(), data.getData()).execute();
+            }
+        } else {
+            super.onActivityResult(requestCode, resultCode, data);
+        }
+    }
+
+    private String getSelection() {
+        String source = importedOnly ? "source IS NOT NULL" : null;
+        if (TextUtils.isEmpty(currentFilter)) {
+            return source;
+        }
+        String filter = TextUtils.isDigitsOnly(currentFilter) ? "responseCode LIKE ?" : "path LIKE ?";
+        return (source != null) ? source + " AND " + filter : filter;
+    }
+
+    private String[] getSelectionArgs() {
+        if (TextUtils.isEmpty(currentFilter)) {
+            return null;
+        }
+        return TextUtils.isDigitsOnly(currentFilter) ?
+                new String[]{ currentFilter + "%" } : new String[]{ "%" + currentFilter + "%" };
+    }
+
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
         adapter.swapCursor(data);
@@ -18,6 +18,9 @@ package com.readystatesoftware.chuck.internal.ui;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -25,6 +28,7 @@ import android.widget.TextView;
 
 import com.readystatesoftware.chuck.R;
 import com.readystatesoftware.chuck.internal.data.HttpTransaction;
+import com.readystatesoftware.chuck.internal.support.PhaseTimings;
 
 public class TransactionOverviewFragment extends Fragment implements TransactionFragment {
 
@@ -40,6 +44,21 @@ public class TransactionOverviewFragment extends Fragment implements Transaction
     TextView requestSize;
     TextView responseSize;
     TextView totalSize;
+    TextView cache;
+    TextView connection;
+    TextView phasesLabel;
+    TextView phases;
+    PhaseBarView phaseBar;
+
+    private static final int[] PHASE_NAMES = {
+            R.string.chuck_phase_queue,
+            R.string.chuck_phase_dns,
+            R.string.chuck_phase_connect,
+            R.string.chuck_phase_tls,
+            R.string.chuck_phase_request,
+            R.string.chuck_phase_waiting,
+            R.string.chuck_phase_response
+    };
 
     private HttpTransaction transaction;
 
@@ -67,6 +86,11 @@ public class TransactionOverviewFragment extends Fragment implements Transaction
         requestSize = (TextView) view.findViewById(R.id.request_size);
         responseSize = (TextView) view.findViewById(R.id.response_size);
         totalSize = (TextView) view.findViewById(R.id.total_size);
+        cache = (TextView) view.findViewById(R.id.cache);
+        connection = (TextView) view.findViewById(R.id.connection);
+        phasesLabel = (TextView) view.findViewById(R.id.phases_label);
+        phases = (TextView) view.findViewById(R.id.phases);
+        phaseBar = (PhaseBarView) view.findViewById(R.id.phase_bar);
         return view;
     }
 
@@ -96,6 +120,74 @@ public class TransactionOverviewFragment extends Fragment implements Transaction
             requestSize.setText(transaction.getRequestSizeString());
             responseSize.setText(transaction.getResponseSizeString());
             totalSize.setText(transaction.getTotalSizeString());
+            cache.setText(getCacheText(transaction.getCacheStatus()));
+            connection.setText(getConnectionText(transaction));
+            populatePhases(PhaseTimings.fromBytes(transaction.getTimings()));
+        }
+    }
+
+    private String getCacheText(HttpTransaction.CacheStatus cacheStatus) {
+        if (cacheStatus == null) {
+            return null;
+        }
+        switch (cacheStatus) {
+            case Hit:
+                return getString(R.string.chuck_cache_hit);
+            case Conditional:
+                return getString(R.string.chuck_cache_conditional);
+            default:
+                return getString(R.string.chuck_cache_miss);
+        }
+    }
+
+    private String getConnectionText(HttpTransaction transaction) {
+        Boolean reused = transaction.getConnectionReused();
+        if (reused == null) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        if (reused) {
+            text.append(getString(R.string.chuck_connection_reused, transaction.getConnectionCalls(),
+                    transaction.getConnectionAgeMs() / 1000f));
+        } else {
+            text.append(getString(R.string.chuck_connection_new));
+        }
+        Boolean tlsResumed = transaction.getTlsResumed();
+        if (tlsResumed != null) {
+            text.append('\n').append(getString(tlsResumed ?
+                    R.string.chuck_connection_tls_resumed : R.string.chuck_connection_tls_full));
+        }
+        Integer concurrent = transaction.getConcurrentCalls();
+        if (concurrent != null && concurrent > 1) {
+            text.append('\n').append(getString(R.string.chuck_connection_concurrent, concurrent));
+        }
+        return text.toString();
+    }
+
+    private void populatePhases(PhaseTimings timings) {
+        int visibility = (timings != null) ? View.VISIBLE : View.GONE;
+        phasesLabel.setVisibility(visibility);
+        phases.setVisibility(visibility);
+        phaseBar.setVisibility(visibility);
+        if (timings == null) {
+            return;
+        }
+        phaseBar.setTimings(timings);
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        for (int i = 0; i < PhaseTimings.PHASES; i++) {
+            int duration = timings.getPhaseUs(i);
+            if (duration < 0) {
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            int start = text.length();
+            text.append("\u25A0 ");
+            text.setSpan(new ForegroundColorSpan(PhaseBarView.getPhaseColor(getContext(), i)),
+                    start, start + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            text.append(getString(R.string.chuck_phase_time, getString(PHASE_NAMES[i]), duration / 1000f));
         }
+        phases.setText(text);
     }
 }
@@ -85,21 +85,25 @@ public class TransactionPayloadFragment extends Fragment implements TransactionF
             switch (type) {
                 case TYPE_REQUEST:
                     setText(transaction.getRequestHeadersString(true),
-                            transaction.getFormattedRequestBody(), transaction.requestBodyIsPlainText());
+                            transaction.getFormattedRequestBody(), transaction.requestBodyIsPlainText(),
+                            transaction.requestBodyIsTruncated());
                     break;
                 case TYPE_RESPONSE:
                     setText(transaction.getResponseHeadersString(true),
-                            transaction.getFormattedResponseBody(), transaction.responseBodyIsPlainText());
+                            transaction.getFormattedResponseBody(), transaction.responseBodyIsPlainText(),
+                            transaction.responseBodyIsTruncated());
                     break;
             }
         }
     }
 
-    private void setText(String headersString, String bodyString, boolean isPlainText) {
+    private void setText(String headersString, String bodyString, boolean isPlainText, boolean isTruncated) {
         headers.setVisibility((TextUtils.isEmpty(headersString) ? View.GONE : View.VISIBLE));
         headers.setText(Html.fromHtml(headersString));
         if (!isPlainText) {
             body.setText(getString(R.string.chuck_body_omitted));
+        } else if (isTruncated) {
+            body.setText(bodyString + getString(R.string.chuck_body_content_truncated));
         } else {
             body.setText(bodyString);
         }
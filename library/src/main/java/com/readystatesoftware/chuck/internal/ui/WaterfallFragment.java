@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.AsyncTaskLoader;
+import android.support.v4.content.Loader;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.readystatesoftware.chuck.R;
+import com.readystatesoftware.chuck.internal.data.ChuckContentProvider;
+
+/**
+ * The last day of transactions on a zoomable timeline, showing which calls ran concurrently.
+ */
+public class WaterfallFragment extends Fragment
+        implements LoaderManager.LoaderCallbacks<WaterfallIndex>, WaterfallView.OnTransactionClickListener {
+
+    private static final long HISTORY_MS = 24 * 60 * 60 * 1000;
+
+    private TextView summary;
+    private WaterfallView waterfall;
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.chuck_fragment_waterfall, container, false);
+        summary = (TextView) view.findViewById(R.id.summary);
+        waterfall = (WaterfallView) view.findViewById(R.id.waterfall);
+        waterfall.setOnTransactionClickListener(this);
+        return view;
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        getLoaderManager().initLoader(0, null, this);
+    }
+
+    @Override
+    public Loader<WaterfallIndex> onCreateLoader(int id, Bundle args) {
+        return new IndexLoader(getContext());
+    }
+
+    @Override
+    public void onLoadFinished(Loader<WaterfallIndex> loader, WaterfallIndex index) {
+        if (index.count == 0) {
+            summary.setText(R.string.chuck_waterfall_none);
+        } else {
+            summary.setText(getString(R.string.chuck_waterfall_summary, index.count, index.laneCount));
+        }
+        waterfall.setIndex(index);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<WaterfallIndex> loader) {
+    }
+
+    @Override
+    public void onTransactionClick(long id) {
+        TransactionActivity.start(getContext(), id);
+    }
+
+    /**
+     * Builds the index off the main thread, rebuilding it at most every couple of seconds while
+     * new transactions arrive.
+     */
+    private static class IndexLoader extends AsyncTaskLoader<WaterfallIndex> {
+
+        private final ForceLoadContentObserver observer = new ForceLoadContentObserver();
+        private WaterfallIndex index;
+        private boolean observing;
+
+        IndexLoader(Context context) {
+            super(context);
+            setUpdateThrottle(2000);
+        }
+
+        @Override
+        protected void onStartLoading() {
+            if (!observing) {
+                getContext().getContentResolver().registerContentObserver(
+                        ChuckContentProvider.TRANSACTION_URI, true, observer);
+                observing = true;
+            }
+            if (index != null) {
+                deliverResult(index);
+            }
+            if (index == null || takeContentChanged()) {
+                forceLoad();
+            }
+        }
+
+        @Override
+        public WaterfallIndex loadInBackground() {
+            long now = System.currentTimeMillis();
+            Cursor cursor = getContext().getContentResolver().query(ChuckContentProvider.TRANSACTION_URI,
+                    WaterfallIndex.PROJECTION, "requestDate >= ?",
+                    new String[] { String.valueOf(now - HISTORY_MS) }, "requestDate ASC");
+            try {
+                return WaterfallIndex.build(cursor, now);
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+
+        @Override
+        public void deliverResult(WaterfallIndex data) {
+            index = data;
+            super.deliverResult(data);
+        }
+
+        @Override
+        protected void onReset() {
+            super.onReset();
+            if (observing) {
+                getContext().getContentResolver().unregisterContentObserver(observer);
+                observing = false;
+            }
+            index = null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.database.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * Transactions laid out for {@link WaterfallView}, as parallel arrays sorted by start time. Each
+ * transaction goes in the first lane that is free when it starts, so overlapping calls stack and
+ * serialized calls share a lane. Bars are grouped into fixed blocks with the latest end in each,
+ * so that the bars overlapping a time range are found without visiting the rest.
+ */
+class WaterfallIndex {
+
+    static final String[] PROJECTION = new String[] {
+            "_id",
+            "requestDate",
+            "tookMs",
+            "responseCode",
+            "error"
+    };
+
+    static final int KIND_DEFAULT = 0;
+    static final int KIND_REQUESTED = 1;
+    static final int KIND_ERROR = 2;
+    static final int KIND_300 = 3;
+    static final int KIND_400 = 4;
+    static final int KIND_500 = 5;
+    static final int KINDS = 6;
+
+    private static final int BLOCK = 64;
+    private static final int MAX_LANES = 256;
+
+    // times are milliseconds since origin
+    final long origin;
+    final int count;
+    final long[] ids;
+    final int[] starts;
+    final int[] ends;
+    final int[] lanes;
+    final byte[] kinds;
+    final int laneCount;
+    final int span;
+    // the latest end in each block, and in all blocks up to and including it
+    private final int[] blockMaxEnd;
+    private final int[] prefixMaxEnd;
+
+    private WaterfallIndex(long origin, int count, long[] ids, int[] starts, int[] ends, byte[] kinds) {
+        this.origin = origin;
+        this.count = count;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.kinds = kinds;
+        lanes = new int[count];
+        int[] laneEnds = new int[16];
+        int used = 0;
+        int maxEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int lane = 0;
+            while (lane < used && laneEnds[lane] > starts[i]) {
+                lane++;
+            }
+            if (lane == used) {
+                if (used == MAX_LANES) {
+                    // pathological concurrency, let the last lane overlap
+                    lane = used - 1;
+                } else {
+                    if (used == laneEnds.length) {
+                        laneEnds = Arrays.copyOf(laneEnds, used * 2);
+                    }
+                    used++;
+                }
+            }
+            laneEnds[lane] = Math.max(laneEnds[lane], ends[i]);
+            lanes[i] = lane;
+            maxEnd = Math.max(maxEnd, ends[i]);
+        }
+        laneCount = used;
+        span = maxEnd;
+
+        int blocks = (count + BLOCK - 1) / BLOCK;
+        blockMaxEnd = new int[blocks];
+        prefixMaxEnd = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int end = 0;
+            for (int i = b * BLOCK; i < Math.min(count, (b + 1) * BLOCK); i++) {
+                end = Math.max(end, ends[i]);
+            }
+            blockMaxEnd[b] = end;
+            prefixMaxEnd[b] = (b > 0) ? Math.max(prefixMaxEnd[b - 1], end) : end;
+        }
+    }
+
+    /**
+     * @param cursor transactions with at least the {@link #PROJECTION} columns, in requestDate
+     * order, or null for an empty index.
+     */
+    static WaterfallIndex build(Cursor cursor, long now) {
+        int count = (cursor != null) ? cursor.getCount() : 0;
+        long[] ids = new long[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        byte[] kinds = new byte[count];
+        if (count == 0) {
+            return new WaterfallIndex(0, 0, ids, starts, ends, kinds);
+        }
+        int idColumn = cursor.getColumnIndex("_id");
+        int dateColumn = cursor.getColumnIndex("requestDate");
+        int tookColumn = cursor.getColumnIndex("tookMs");
+        int codeColumn = cursor.getColumnIndex("responseCode");
+        int errorColumn = cursor.getColumnIndex("error");
+        long origin = 0;
+        int i = 0;
+        while (i < count && cursor.moveToNext()) {
+            long start = cursor.getLong(dateColumn);
+            if (i == 0) {
+                origin = start;
+            }
+            ids[i] = cursor.getLong(idColumn);
+            starts[i] = (int) (start - origin);
+            int kind;
+            long end;
+            if (!cursor.isNull(errorColumn)) {
+                kind = KIND_ERROR;
+                end = start + (cursor.isNull(tookColumn) ? 0 : cursor.getLong(tookColumn));
+            } else if (cursor.isNull(codeColumn)) {
+                // still in flight, so it runs until now
+                kind = KIND_REQUESTED;
+                end = Math.max(start, now);
+            } else {
+                int code = cursor.getInt(codeColumn);
+                kind = (code >= 500) ? KIND_500 : (code >= 400) ? KIND_400 : (code >= 300) ? KIND_300 : KIND_DEFAULT;
+                end = start + (cursor.isNull(tookColumn) ? 0 : cursor.getLong(tookColumn));
+            }
+            ends[i] = (int) (end - origin);
+            kinds[i] = (byte) kind;
+            i++;
+        }
+        return new WaterfallIndex(origin, i, ids, starts, ends, kinds);
+    }
+
+    int getBlockCount() {
+        return blockMaxEnd.length;
+    }
+
+    static int getBlockStart(int block) {
+        return block * BLOCK;
+    }
+
+    int getBlockEnd(int block) {
+        return Math.min(count, (block + 1) * BLOCK);
+    }
+
+    /**
+     * @return true if every bar in the block ends before the given time.
+     */
+    boolean blockEndsBefore(int block, int time) {
+        return blockMaxEnd[block] < time;
+    }
+
+    /**
+     * @return the first block that can hold a bar ending at or after the given time. Every bar
+     * in the blocks before it ends earlier.
+     */
+    int firstBlockEndingAfter(int time) {
+        int low = 0;
+        int high = prefixMaxEnd.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prefixMaxEnd[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
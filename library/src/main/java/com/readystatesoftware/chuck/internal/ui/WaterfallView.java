@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.internal.ui;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.widget.OverScroller;
+
+import com.readystatesoftware.chuck.R;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Draws transactions as bars along a time axis, one lane per concurrent call. Pinch to zoom the
+ * time axis, drag or fling to pan, double tap to fit everything and tap a bar to open it. Only
+ * the bars in view are visited, and bars narrower than a pixel that land on a pixel already
+ * drawn in their lane are skipped, so a day of history draws as fast as a minute.
+ */
+public class WaterfallView extends View {
+
+    private static final long[] TICK_STEPS_MS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1000, 2000, 5000, 10000, 15000, 30000,
+            60000, 120000, 300000, 600000, 900000, 1800000,
+            3600000, 7200000, 10800000, 21600000, 43200000
+    };
+    // the most pixels per millisecond, at which a 1 ms call is 20 pixels wide
+    private static final float MAX_SCALE = 20f;
+
+    interface OnTransactionClickListener {
+        void onTransactionClick(long id);
+    }
+
+    private final Paint[] barPaints = new Paint[WaterfallIndex.KINDS];
+    private final Paint axisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint gridPaint = new Paint();
+    private final SimpleDateFormat secondsFormat = new SimpleDateFormat("HH:mm:ss", Locale.US);
+    private final SimpleDateFormat millisFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+    private final Date tickDate = new Date();
+    private final float laneHeight;
+    private final float laneGap;
+    private final float axisHeight;
+    private final float minTickSpacing;
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+    private final OverScroller scroller;
+
+    private WaterfallIndex index;
+    private int[] laneLastPixel = new int[0];
+    // pixels per millisecond, and the time at the left edge in milliseconds since the index origin
+    private float scale;
+    private float offsetMs;
+    private float scrollY;
+    private boolean fitted = true;
+    private OnTransactionClickListener listener;
+
+    public WaterfallView(Context context) {
+        this(context, null);
+    }
+
+    public WaterfallView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        int[] colors = new int[WaterfallIndex.KINDS];
+        colors[WaterfallIndex.KIND_DEFAULT] = R.color.chuck_colorPrimary;
+        colors[WaterfallIndex.KIND_REQUESTED] = R.color.chuck_status_requested;
+        colors[WaterfallIndex.KIND_ERROR] = R.color.chuck_status_error;
+        colors[WaterfallIndex.KIND_300] = R.color.chuck_status_300;
+        colors[WaterfallIndex.KIND_400] = R.color.chuck_status_400;
+        colors[WaterfallIndex.KIND_500] = R.color.chuck_status_500;
+        for (int i = 0; i < WaterfallIndex.KINDS; i++) {
+            barPaints[i] = new Paint();
+            barPaints[i].setColor(ContextCompat.getColor(context, colors[i]));
+        }
+        float density = getResources().getDisplayMetrics().density;
+        laneHeight = 10 * density;
+        laneGap = 2 * density;
+        axisHeight = 20 * density;
+        minTickSpacing = 96 * density;
+        axisPaint.setColor(ContextCompat.getColor(context, R.color.chuck_status_default));
+        axisPaint.setTextSize(11 * getResources().getDisplayMetrics().scaledDensity);
+        gridPaint.setColor(ContextCompat.getColor(context, R.color.chuck_status_requested));
+        gridPaint.setAlpha(64);
+        scroller = new OverScroller(context);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                float focusMs = offsetMs + (detector.getFocusX() - getPaddingLeft()) / scale;
+                scale = clampScale(scale * detector.getScaleFactor());
+                offsetMs = focusMs - (detector.getFocusX() - getPaddingLeft()) / scale;
+                fitted = false;
+                clampOffsets();
+                ViewCompat.postInvalidateOnAnimation(WaterfallView.this);
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                scroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                offsetMs += distanceX / scale;
+                scrollY += distanceY;
+                fitted = false;
+                clampOffsets();
+                ViewCompat.postInvalidateOnAnimation(WaterfallView.this);
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                if (index == null) {
+                    return false;
+                }
+                scroller.fling((int) (offsetMs * scale), (int) scrollY, (int) -velocityX, (int) -velocityY,
+                        0, (int) Math.max(0, index.span * scale - getContentWidth()),
+                        0, (int) getMaxScrollY());
+                fitted = false;
+                ViewCompat.postInvalidateOnAnimation(WaterfallView.this);
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapConfirmed(MotionEvent e) {
+                int position = findBar(e.getX(), e.getY());
+                if (position >= 0 && listener != null) {
+                    listener.onTransactionClick(index.ids[position]);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                fit();
+                return true;
+            }
+        });
+    }
+
+    void setOnTransactionClickListener(OnTransactionClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Shows a new index, keeping the time range in view unless everything was fitted.
+     */
+    void setIndex(WaterfallIndex index) {
+        if (this.index != null && index.count > 0) {
+            offsetMs += this.index.origin - index.origin;
+        }
+        this.index = index;
+        laneLastPixel = new int[index.laneCount];
+        if (fitted) {
+            fit();
+        } else {
+            clampOffsets();
+            invalidate();
+        }
+    }
+
+    private void fit() {
+        fitted = true;
+        offsetMs = 0;
+        scrollY = 0;
+        if (index != null && getContentWidth() > 0) {
+            scale = clampScale(getContentWidth() / (float) Math.max(index.span, 1));
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (fitted) {
+            fit();
+        } else {
+            clampOffsets();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled = gestureDetector.onTouchEvent(event) || handled;
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            offsetMs = scroller.getCurrX() / scale;
+            scrollY = scroller.getCurrY();
+            clampOffsets();
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (index == null || index.count == 0 || scale <= 0) {
+            return;
+        }
+        float left = getPaddingLeft();
+        float top = getPaddingTop() + axisHeight;
+        float right = getWidth() - getPaddingRight();
+        float bottom = getHeight() - getPaddingBottom();
+        drawAxis(canvas, left, right, bottom);
+
+        float laneStride = laneHeight + laneGap;
+        int firstLane = (int) (scrollY / laneStride);
+        int lastLane = Math.min(index.laneCount - 1, (int) ((scrollY + bottom - top) / laneStride));
+        int viewStart = (int) Math.floor(offsetMs);
+        int viewEnd = (int) Math.ceil(offsetMs + (right - left) / scale);
+        Arrays.fill(laneLastPixel, Integer.MIN_VALUE);
+
+        canvas.save();
+        canvas.clipRect(left, top, right, bottom);
+        for (int block = index.firstBlockEndingAfter(viewStart); block < index.getBlockCount(); block++) {
+            int first = WaterfallIndex.getBlockStart(block);
+            if (index.starts[first] > viewEnd) {
+                break;
+            }
+            if (index.blockEndsBefore(block, viewStart)) {
+                continue;
+            }
+            int end = index.getBlockEnd(block);
+            for (int i = first; i < end; i++) {
+                int start = index.starts[i];
+                if (start > viewEnd) {
+                    break;
+                }
+                int lane = index.lanes[i];
+                if (index.ends[i] < viewStart || lane < firstLane || lane > lastLane) {
+                    continue;
+                }
+                float barLeft = left + (start - offsetMs) * scale;
+                float barRight = Math.max(barLeft + 1, left + (index.ends[i] - offsetMs) * scale);
+                int pixel = (int) barRight;
+                if (barRight - barLeft <= 1 && pixel == laneLastPixel[lane]) {
+                    continue;
+                }
+                laneLastPixel[lane] = pixel;
+                float barTop = top + lane * laneStride - scrollY;
+                canvas.drawRect(barLeft, barTop, barRight, barTop + laneHeight, barPaints[index.kinds[i]]);
+            }
+        }
+        canvas.restore();
+    }
+
+    private void drawAxis(Canvas canvas, float left, float right, float bottom) {
+        long step = TICK_STEPS_MS[TICK_STEPS_MS.length - 1];
+        for (long candidate : TICK_STEPS_MS) {
+            if (candidate * scale >= minTickSpacing) {
+                step = candidate;
+                break;
+            }
+        }
+        SimpleDateFormat format = (step < 1000) ? millisFormat : secondsFormat;
+        long startTime = index.origin + (long) offsetMs;
+        long tick = startTime - (startTime % step) + step;
+        float textY = getPaddingTop() + axisHeight - axisPaint.descent() - 2;
+        while (true) {
+            float x = left + (tick - index.origin - offsetMs) * scale;
+            if (x > right) {
+                break;
+            }
+            canvas.drawLine(x, getPaddingTop() + axisHeight, x, bottom, gridPaint);
+            tickDate.setTime(tick);
+            canvas.drawText(format.format(tickDate), x + 2, textY, axisPaint);
+            tick += step;
+        }
+    }
+
+    /**
+     * @return the position in the index of the bar under the point, or -1.
+     */
+    private int findBar(float x, float y) {
+        if (index == null || scale <= 0) {
+            return -1;
+        }
+        float laneStride = laneHeight + laneGap;
+        float laneY = y - getPaddingTop() - axisHeight + scrollY;
+        int lane = (int) (laneY / laneStride);
+        if (laneY < 0 || lane >= index.laneCount || laneY - lane * laneStride > laneHeight) {
+            return -1;
+        }
+        // accept touches a few pixels either side of bars that are too narrow to hit
+        float slop = laneHeight / scale;
+        float time = offsetMs + (x - getPaddingLeft()) / scale;
+        int from = (int) Math.floor(time - slop);
+        int to = (int) Math.ceil(time + slop);
+        for (int block = index.firstBlockEndingAfter(from); block < index.getBlockCount(); block++) {
+            int first = WaterfallIndex.getBlockStart(block);
+            if (index.starts[first] > to) {
+                break;
+            }
+            for (int i = first; i < index.getBlockEnd(block); i++) {
+                if (index.lanes[i] == lane && index.starts[i] <= to && index.ends[i] >= from) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private float getContentWidth() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    private float getMaxScrollY() {
+        float content = (index != null) ? index.laneCount * (laneHeight + laneGap) : 0;
+        return Math.max(0, content - (getHeight() - getPaddingTop() - getPaddingBottom() - axisHeight));
+    }
+
+    private float clampScale(float value) {
+        float min = (index != null && getContentWidth() > 0) ?
+                getContentWidth() / (float) Math.max(index.span, 1) : 0;
+        return Math.max(Math.min(value, MAX_SCALE), Math.min(min, MAX_SCALE));
+    }
+
+    private void clampOffsets() {
+        if (index == null || scale <= 0) {
+            return;
+        }
+        float maxOffset = Math.max(0, index.span - getContentWidth() / scale);
+        offsetMs = Math.max(0, Math.min(offsetMs, maxOffset));
+        scrollY = Math.max(0, Math.min(scrollY, getMaxScrollY()));
+    }
+}
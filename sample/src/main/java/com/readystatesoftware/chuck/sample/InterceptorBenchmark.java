@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.sample;
+
+import android.content.Context;
+
+import com.readystatesoftware.chuck.CaptureLevel;
+import com.readystatesoftware.chuck.Chuck;
+import com.readystatesoftware.chuck.ChuckInterceptor;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Measures the per-call cost of the Chuck interceptor against a client without it. Calls never
+ * reach the network: a terminal interceptor answers every request, so the numbers only reflect
+ * time spent in the interceptor chain.
+ */
+class InterceptorBenchmark {
+
+    private static final int WARMUP_CALLS = 2000;
+    private static final int ROUNDS = 5;
+    private static final int CALLS_PER_ROUND = 2000;
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private static final Interceptor CANNED_RESPONSE = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(JSON, "{}"))
+                    .build();
+        }
+    };
+
+    private final Context context;
+
+    InterceptorBenchmark(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Runs the benchmark on the calling thread, which should not be the main thread.
+     *
+     * @return a short report of the average cost per call.
+     */
+    String run() throws IOException {
+        OkHttpClient plain = new OkHttpClient.Builder()
+                .addInterceptor(CANNED_RESPONSE)
+                .build();
+        OkHttpClient chuck = new OkHttpClient.Builder()
+                .addInterceptor(new ChuckInterceptor(context).showNotification(false))
+                .addInterceptor(CANNED_RESPONSE)
+                .build();
+        Request request = new Request.Builder().url("https://benchmark.invalid/get").build();
+
+        CaptureLevel previous = Chuck.getCaptureLevel();
+        Chuck.setCaptureLevel(CaptureLevel.NONE);
+        try {
+            execute(plain, request, WARMUP_CALLS);
+            execute(chuck, request, WARMUP_CALLS);
+            long plainNs = 0;
+            long disabledNs = 0;
+            // alternate the clients so that drift in clock speed affects both equally
+            for (int i = 0; i < ROUNDS; i++) {
+                plainNs += execute(plain, request, CALLS_PER_ROUND);
+                disabledNs += execute(chuck, request, CALLS_PER_ROUND);
+            }
+            long calls = (long) ROUNDS * CALLS_PER_ROUND;
+            return String.format(Locale.US,
+                    "Without Chuck: %d ns/call%nChuck disabled: %d ns/call%nDifference: %d ns/call",
+                    plainNs / calls, disabledNs / calls, (disabledNs - plainNs) / calls);
+        } finally {
+            Chuck.setCaptureLevel(previous);
+        }
+    }
+
+    private static long execute(OkHttpClient client, Request request, int calls) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            client.newCall(request).execute().close();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -15,17 +15,16 @@
  */
 package com.readystatesoftware.chuck.sample;
 
-import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
 
 import com.readystatesoftware.chuck.Chuck;
-import com.readystatesoftware.chuck.ChuckInterceptor;
 
-import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import java.io.IOException;
+
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -48,14 +47,12 @@ public class MainActivity extends AppCompatActivity {
                 launchChuckDirectly();
             }
         });
-    }
-
-    private OkHttpClient getClient(Context context) {
-        return new OkHttpClient.Builder()
-                // Add a ChuckInterceptor instance to your OkHttp client
-                .addInterceptor(new ChuckInterceptor(context))
-                .addInterceptor(new HttpLoggingInterceptor().setLevel(HttpLoggingInterceptor.Level.BODY))
-                .build();
+        findViewById(R.id.run_benchmark).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                runBenchmark();
+            }
+        });
     }
 
     private void launchChuckDirectly() {
@@ -63,8 +60,36 @@ public class MainActivity extends AppCompatActivity {
         startActivity(Chuck.getLaunchIntent(this));
     }
 
+    private void runBenchmark() {
+        final InterceptorBenchmark benchmark = new InterceptorBenchmark(this);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String report;
+                try {
+                    report = benchmark.run();
+                } catch (IOException e) {
+                    report = e.toString();
+                }
+                final String message = report;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isFinishing()) {
+                            new AlertDialog.Builder(MainActivity.this)
+                                    .setTitle(R.string.run_benchmark)
+                                    .setMessage(message)
+                                    .setPositiveButton(android.R.string.ok, null)
+                                    .show();
+                        }
+                    }
+                });
+            }
+        }, "Chuck benchmark").start();
+    }
+
     private void doHttpActivity() {
-        SampleApiService.HttpbinApi api = SampleApiService.getInstance(getClient(this));
+        SampleApiService.HttpbinApi api = SampleApiService.getInstance(((SampleApplication) getApplication()).getClient());
         Callback<Void> cb = new Callback<Void>() {
             @Override public void onResponse(Call call, Response response) {}
             @Override public void onFailure(Call call, Throwable t) { t.printStackTrace(); }
@@ -95,6 +120,8 @@ public class MainActivity extends AppCompatActivity {
         api.drip(512, 5, 1, 200).enqueue(cb);
         api.deny().enqueue(cb);
         api.cache("Mon").enqueue(cb);
+        // without If-Modified-Since, so that OkHttp revalidates its own cached copy
+        api.cache((String) null).enqueue(cb);
         api.cache(30).enqueue(cb);
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Jeff Gilfelt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.readystatesoftware.chuck.sample;
+
+import android.app.Application;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.readystatesoftware.chuck.ChuckEventListener;
+import com.readystatesoftware.chuck.ChuckInterceptor;
+
+import java.io.File;
+
+import okhttp3.Cache;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+public class SampleApplication extends Application {
+
+    private static final String LOG_TAG = "ChuckSample";
+
+    private OkHttpClient client;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Build the client during startup, as most apps do. startup-benchmark.sh compares the
+        // launch time of this build against the noChuck build type.
+        long start = SystemClock.elapsedRealtime();
+        Dispatcher dispatcher = new Dispatcher();
+        ChuckInterceptor chuck = new ChuckInterceptor(this).monitorDispatcher(dispatcher);
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                // A response cache, so that repeating the cache calls shows hits and revalidations
+                .cache(new Cache(new File(getCacheDir(), "http"), 10 * 1024 * 1024))
+                // Add a ChuckInterceptor instance to your OkHttp client
+                .addInterceptor(chuck)
+                // Optionally add its network interceptor to record each redirect and retry
+                .addNetworkInterceptor(chuck.networkInterceptor())
+                .addInterceptor(new HttpLoggingInterceptor().setLevel(HttpLoggingInterceptor.Level.BODY))
+                // Optionally add the ChuckEventListener to record DNS, connect and TLS timings
+                .eventListenerFactory(ChuckEventListener.factory())
+                .build();
+        Log.i(LOG_TAG, "OkHttpClient built in " + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    OkHttpClient getClient() {
+        return client;
+    }
+}
@@ -0,0 +1,36 @@
+#!/bin/sh
+#
+# Compares cold start time of the sample app with Chuck installed (debug) and without it
+# (noChuck, which uses library-no-op). Requires a single connected device or emulator.
+#
+# Usage: sample/startup-benchmark.sh [runs]
+
+RUNS=${1:-20}
+PACKAGE=com.readystatesoftware.chuck.sample
+ACTIVITY=$PACKAGE/.MainActivity
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+measure() {
+    total=0
+    i=0
+    while [ $i -lt $RUNS ]; do
+        adb shell am force-stop $PACKAGE
+        sleep 1
+        took=$(adb shell am start -W -n $ACTIVITY | tr -d '\r' | awk -F': ' '/TotalTime/ { print $2 }')
+        total=$((total + took))
+        i=$((i + 1))
+    done
+    echo $((total / RUNS))
+}
+
+for variant in Debug NoChuck; do
+    "$ROOT/gradlew" -q -p "$ROOT" :sample:install$variant || exit 1
+    adb shell pm clear $PACKAGE > /dev/null
+    # the first launch after install also compiles and creates databases, so leave it out
+    adb shell am start -W -n $ACTIVITY > /dev/null
+    eval "avg_$variant=$(measure)"
+done
+
+echo "With Chuck:    ${avg_Debug} ms"
+echo "Without Chuck: ${avg_NoChuck} ms"
+echo "Difference:    $((avg_Debug - avg_NoChuck)) ms (average of $RUNS cold starts)"